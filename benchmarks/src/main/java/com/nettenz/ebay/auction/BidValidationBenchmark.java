@@ -0,0 +1,100 @@
+package com.nettenz.ebay.auction;
+
+import com.nettenz.ebay.dao.BidDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory part of placing a bid: parsing the submitted amount as {@code PlaceBidServlet} does and
+ * resolving it in {@link BidEngine} against the current price and the high bidder's maximum. Persistence is
+ * stubbed out, so {@link #accept} measures the engine's locking, proxy resolution and state replacement, not MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BidValidationBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+    private static final BigDecimal CENT = new BigDecimal("0.01");
+
+    private BidEngine engine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<BidDao.AuctionSummary> summaries = new ArrayList<>(PRODUCTS);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            summaries.add(new BidDao.AuctionSummary(id, 1, new BigDecimal("100.00"), 2L, null, 5, null, false));
+        }
+        BidDao bids = new BidDao() {
+            @Override
+            public List<AuctionSummary> findAuctionSummaries() {
+                return summaries;
+            }
+
+            @Override
+            public AuctionSummary findAuctionSummary(long productId) {
+                return null;
+            }
+
+            @Override
+            public boolean placeBid(BidWrite write) {
+                return true;
+            }
+        };
+        engine = new BidEngine(bids, 256, false, new BigDecimal("1.00"));
+        engine.rebuild();
+    }
+
+    @State(Scope.Thread)
+    public static class Form {
+        String amount;
+
+        @Setup(Level.Iteration)
+        public void pick() {
+            amount = ThreadLocalRandom.current().nextInt(50, 150) + "." + ThreadLocalRandom.current().nextInt(10, 100);
+        }
+    }
+
+    /** Request parameter to {@code BigDecimal}, compared with a price. */
+    @Benchmark
+    public boolean parseAndCompare(Form form) {
+        return new BigDecimal(form.amount).compareTo(new BigDecimal("100.00")) > 0;
+    }
+
+    /** A bid at or below the current price: rejected without touching the database. */
+    @Benchmark
+    @Threads(4)
+    public BidResult rejectTooLow() {
+        long productId = ThreadLocalRandom.current().nextLong(1, PRODUCTS + 1);
+        return engine.placeBid(productId, 3, new BigDecimal("99.99"));
+    }
+
+    /** A challenger's maximum one cent above the high bidder's, which takes the lead, with a no-op write. */
+    @Benchmark
+    @Threads(4)
+    public BidResult accept() {
+        long productId = ThreadLocalRandom.current().nextLong(1, PRODUCTS + 1);
+        AuctionState state = engine.peek(productId);
+        long bidderId = state.highBidderId() == 3 ? 4 : 3;
+        return engine.placeBid(productId, bidderId, state.highBidderMax().add(CENT));
+    }
+}
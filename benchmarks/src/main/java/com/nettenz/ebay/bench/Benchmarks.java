@@ -0,0 +1,44 @@
+package com.nettenz.ebay.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of {@code benchmarks.jar}: the standard JMH command line, except that results are written
+ * as JSON to {@code jmh-result.json} unless {@code -rf}/{@code -rff} say otherwise, so every run leaves a
+ * file that can be compared against a previous one.
+ *
+ * <pre>{@code
+ * java -jar benchmarks/target/benchmarks.jar                      # everything
+ * java -jar benchmarks/target/benchmarks.jar RowMapping -f 1      # one class, one fork
+ * }</pre>
+ */
+public final class Benchmarks {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private Benchmarks() {}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.nettenz.ebay.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one result row into a DTO, as done for every row of a listing page or bid history.
+ * Rows come from {@link TextRow}, which decodes text-protocol values the way the driver does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RowMappingBenchmark {
+
+    private final ProductDao productDao = new ProductDao();
+    private final BidDao bidDao = new BidDao();
+
+    private ResultSet productRow;
+    private ResultSet bidRow;
+
+    @Setup
+    public void setup() {
+        productRow = TextRow.of(
+                "product_id", "184467",
+                "seller_user_id", "2231",
+                "name", "Vintage mechanical wristwatch, 1960s, fully serviced",
+                "description", "Hand-wound movement, new crystal and strap. Keeps time within ten seconds a day.",
+                "image_url", "/images/3f/3fa1c09e6d2b4e8a9c51d7a0b2e4f6c8.jpg",
+                "starting_bid", "25.00",
+                "current_price", "137.50",
+                "seller_name", "timepieces_42",
+                "bid_count", "17",
+                "created_at", "2024-05-14 18:22:07",
+                "high_bidder_user_id", "90412",
+                "image_variants", "card,detail",
+                "ends_at", "2024-05-21 18:22:07",
+                "closed_at", null,
+                "winner_user_id", null);
+        bidRow = TextRow.of(
+                "bid_id", "5530912",
+                "product_id", "184467",
+                "bidder_user_id", "90412",
+                "bidder_name", "collector_jo",
+                "amount", "137.50",
+                "created_at", "2024-05-20 09:41:55");
+    }
+
+    @Benchmark
+    public ProductDao.ProductDto product() throws SQLException {
+        return productDao.mapToProductDto(productRow);
+    }
+
+    @Benchmark
+    public BidDao.BidDto bid() throws SQLException {
+        return bidDao.mapToBidDto(bidRow);
+    }
+}
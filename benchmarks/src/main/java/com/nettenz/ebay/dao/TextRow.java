@@ -0,0 +1,67 @@
+package com.nettenz.ebay.dao;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single-row {@link ResultSet} holding column values as text, like MySQL's text protocol. Each getter
+ * looks the label up and decodes the value on every call, as Connector/J does, so mapping benchmarks
+ * include the conversion work rather than just record construction. Only the getters the DAOs use are
+ * implemented; anything else throws.
+ */
+final class TextRow {
+
+    private TextRow() {}
+
+    /**
+     * @param labelsAndValues alternating column label and value; a null value is SQL NULL
+     */
+    static ResultSet of(String... labelsAndValues) {
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < labelsAndValues.length; i += 2) {
+            row.put(labelsAndValues[i], labelsAndValues[i + 1]);
+        }
+        return (ResultSet) Proxy.newProxyInstance(TextRow.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    String value = switch (method.getName()) {
+                        case "getString", "getLong", "getInt", "getBigDecimal", "getTimestamp", "getObject" ->
+                                column(row, args[0]);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                    return switch (method.getName()) {
+                        case "getString" -> value;
+                        case "getLong" -> value == null ? 0L : Long.parseLong(value);
+                        case "getInt" -> value == null ? 0 : Integer.parseInt(value);
+                        case "getBigDecimal" -> value == null ? null : new BigDecimal(value);
+                        case "getTimestamp" -> value == null ? null : Timestamp.valueOf(value);
+                        case "getObject" -> value == null ? null : convert(value, (Class<?>) args[1]);
+                        default -> throw new AssertionError();
+                    };
+                });
+    }
+
+    private static String column(Map<String, String> row, Object label) throws SQLException {
+        if (!(label instanceof String name) || !row.containsKey(name)) {
+            throw new SQLException("Column '" + label + "' not found");
+        }
+        return row.get(name);
+    }
+
+    private static Object convert(String value, Class<?> type) {
+        if (type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == String.class) {
+            return value;
+        }
+        throw new UnsupportedOperationException("getObject(" + type.getName() + ")");
+    }
+}
@@ -0,0 +1,144 @@
+package com.nettenz.ebay.servlet.product;
+
+import com.nettenz.ebay.dao.PageCursor;
+import com.nettenz.ebay.dao.ProductDao;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.apache.jasper.servlet.JspServlet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Renders {@code product/list.jsp} with a page of products through embedded Tomcat and Jasper, the same
+ * compiled JSP a deployment runs. Only the JSP and a servlet that forwards to it are deployed (no filters,
+ * listeners or database). Each operation is one keep-alive request over loopback, so the figure includes a
+ * small, constant HTTP cost; compare sizes to see the per-product rendering cost.
+ *
+ * <p>The webapp is read from {@code src/main/webapp}, relative to the working directory or its parent;
+ * set {@code -Dwebapp.dir=...} to run from elsewhere.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductListRenderBenchmark {
+
+    private static final String JSP = "/WEB-INF/jsp/product/list.jsp";
+
+    @Param({"24", "100", "500"})
+    public int products;
+
+    private Tomcat tomcat;
+    private Path baseDir;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setup() throws LifecycleException, IOException, InterruptedException {
+        Logger.getLogger("org.apache").setLevel(Level.WARNING);
+        List<ProductDao.ProductDto> page = page(products);
+
+        baseDir = Files.createTempDirectory("render-bench");
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context ctx = tomcat.addContext("", webappDir().toString());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.addServlet(ctx, "jsp", new JspServlet()).addInitParameter("development", "false");
+        ctx.addServletMappingDecoded("*.jsp", "jsp");
+        Tomcat.addServlet(ctx, "render", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                req.setAttribute("products", page);
+                req.setAttribute("nextPageToken", new PageCursor(page.getLast().createdAt(), page.getLast().id()).encode());
+                req.getRequestDispatcher(JSP).forward(req, resp);
+            }
+        });
+        ctx.addServletMappingDecoded("/render", "render");
+        tomcat.start();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + tomcat.getConnector().getLocalPort() + "/render")).build();
+        HttpResponse<byte[]> first = client.send(request, HttpResponse.BodyHandlers.ofByteArray()); // compiles the JSP
+        if (first.statusCode() != 200) {
+            throw new IllegalStateException("Rendering " + JSP + " failed with HTTP " + first.statusCode());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws LifecycleException, IOException {
+        tomcat.stop();
+        tomcat.destroy();
+        try (var files = Files.walk(baseDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int render() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+
+    private static List<ProductDao.ProductDto> page(int size) {
+        List<ProductDao.ProductDto> page = new ArrayList<>(size);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            page.add(new ProductDao.ProductDto((long) (100_000 + i), 42L,
+                    "Vintage mechanical wristwatch #" + i + " — \"serviced\" & boxed",
+                    "Hand-wound movement, new crystal and strap. Keeps time within ten seconds a day.",
+                    i % 4 == 0 ? null : "/images/3f/3fa1c09e6d2b4e8a9c51d7a0b2e4f6" + String.format("%02d", i % 100) + ".jpg",
+                    new BigDecimal("25.00"), new BigDecimal(100 + i + ".50"), "timepieces_42", i % 7,
+                    new Timestamp(now - i * 60_000L), (long) (90_000 + i), i % 2 == 0 ? "card,detail" : null,
+                    new Timestamp(now + (i + 1) * 3_600_000L), null, null));
+        }
+        return page;
+    }
+
+    private static Path webappDir() {
+        String configured = System.getProperty("webapp.dir");
+        if (configured != null) {
+            return Path.of(configured).toAbsolutePath();
+        }
+        for (Path candidate : List.of(Path.of("src/main/webapp"), Path.of("../src/main/webapp"))) {
+            if (Files.isRegularFile(candidate.resolve(JSP.substring(1)))) {
+                return candidate.toAbsolutePath();
+            }
+        }
+        throw new IllegalStateException("Cannot find src/main/webapp; run from the project directory or set -Dwebapp.dir");
+    }
+}
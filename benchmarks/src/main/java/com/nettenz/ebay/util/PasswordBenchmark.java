@@ -0,0 +1,52 @@
+package com.nettenz.ebay.util;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bcrypt cost per login and registration. {@link PasswordUtil#hash} uses cost 12; the other costs show
+ * what raising or lowering it would do to {@code BCRYPT_WORKERS} capacity (each step doubles the time).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"10", "11", "12", "13"})
+    public int cost;
+
+    private String storedHash;
+
+    @Setup
+    public void setup() {
+        storedHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public String hash() {
+        return BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    /** The cost is read from the stored hash, as at login. */
+    @Benchmark
+    public boolean verify() {
+        return PasswordUtil.verify(PASSWORD, storedHash);
+    }
+}
@@ -0,0 +1,16 @@
+-- db/migrations/001_products_bid_summary.sql
+-- Adds the denormalized bid summary columns to an existing products table.
+-- New installs get them from schema.sql.
+--
+-- After running this, backfill the values once with the reconcile job:
+--   java -cp "WEB-INF/classes:WEB-INF/lib/*" com.nettenz.ebay.job.ReconcileBidSummariesJob
+
+USE ebay;
+
+ALTER TABLE products
+    ADD COLUMN current_price       DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+    ADD COLUMN bid_count           INT NOT NULL DEFAULT 0,
+    ADD COLUMN high_bidder_user_id BIGINT NULL,
+    ADD CONSTRAINT fk_products_high_bidder
+        FOREIGN KEY (high_bidder_user_id) REFERENCES users(user_id)
+        ON DELETE SET NULL ON UPDATE CASCADE;
@@ -0,0 +1,6 @@
+-- db/migrations/002_products_created_index.sql
+-- Supports keyset pagination of product listings (ProductDao.findPage).
+
+USE ebay;
+
+CREATE INDEX idx_products_created ON products (created_at, product_id);
@@ -0,0 +1,8 @@
+-- db/migrations/003_products_image_variants.sql
+-- Records which resized image variants (card, detail) have been generated for an uploaded product image.
+-- Products without variants keep being served their original image.
+
+USE ebay;
+
+ALTER TABLE products
+    ADD COLUMN image_variants VARCHAR(64) NULL AFTER image_url;
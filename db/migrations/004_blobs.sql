@@ -0,0 +1,15 @@
+-- db/migrations/004_blobs.sql
+-- Content-addressed upload store: one row per stored blob with the number of products referencing it.
+-- Unreferenced blobs are removed by com.nettenz.ebay.job.CollectOrphanBlobsJob.
+
+USE ebay;
+
+CREATE TABLE IF NOT EXISTS blobs (
+    blob_key         VARCHAR(80) PRIMARY KEY,
+    size_bytes       BIGINT NOT NULL,
+    ref_count        INT NOT NULL DEFAULT 0,
+    created_at       TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_blobs_unreferenced (ref_count, last_uploaded_at)
+);
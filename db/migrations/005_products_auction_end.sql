@@ -0,0 +1,14 @@
+-- db/migrations/005_products_auction_end.sql
+-- Auction deadlines: when bidding on a product ends, when the auction closer closed it and who won.
+-- Existing products keep ends_at NULL and stay open until an end time is set for them.
+
+USE ebay;
+
+ALTER TABLE products
+    ADD COLUMN ends_at        TIMESTAMP NULL AFTER created_at,
+    ADD COLUMN closed_at      TIMESTAMP NULL AFTER ends_at,
+    ADD COLUMN winner_user_id BIGINT NULL AFTER high_bidder_user_id,
+    ADD CONSTRAINT fk_products_winner
+        FOREIGN KEY (winner_user_id) REFERENCES users(user_id)
+        ON DELETE SET NULL ON UPDATE CASCADE,
+    ADD INDEX idx_products_closing (closed_at, ends_at);
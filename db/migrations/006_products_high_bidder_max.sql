@@ -0,0 +1,7 @@
+-- Proxy bidding: the high bidder's hidden maximum, up to which the bid engine outbids challengers
+-- automatically. NULL means the high bidder has no headroom above the current price.
+
+USE ebay;
+
+ALTER TABLE products
+    ADD COLUMN high_bidder_max DECIMAL(10,2) NULL AFTER high_bidder_user_id;
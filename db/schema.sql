@@ -34,8 +34,22 @@ CREATE TABLE IF NOT EXISTS products (
                                         name           VARCHAR(200) NOT NULL,
     description    TEXT NULL,
     image_url      VARCHAR(500) NULL,
+    -- Resized variants generated for an uploaded image (comma-separated: card,detail), see ImagePipeline
+    image_variants VARCHAR(64) NULL,
     starting_bid   DECIMAL(10,2) NOT NULL DEFAULT 0.00,
     created_at     TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Bidding ends at ends_at (NULL: no end); AuctionCloser sets closed_at and winner_user_id
+    ends_at        TIMESTAMP NULL,
+    closed_at      TIMESTAMP NULL,
+
+    -- Bid summary, maintained by BidDao.placeBid in the same transaction as the bid insert
+    -- so listing/detail reads never aggregate over bids.
+    current_price       DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+    bid_count           INT NOT NULL DEFAULT 0,
+    high_bidder_user_id BIGINT NULL,
+    -- The high bidder's hidden proxy maximum (NULL: no headroom above current_price); never shown
+    high_bidder_max     DECIMAL(10,2) NULL,
+    winner_user_id      BIGINT NULL,
 
     CONSTRAINT fk_products_seller
     FOREIGN KEY (seller_user_id) REFERENCES users(user_id)
@@ -43,7 +57,20 @@ CREATE TABLE IF NOT EXISTS products (
 
     CONSTRAINT fk_products_dept
     FOREIGN KEY (department_id) REFERENCES departments(department_id)
-    ON DELETE SET NULL ON UPDATE CASCADE
+    ON DELETE SET NULL ON UPDATE CASCADE,
+
+    CONSTRAINT fk_products_high_bidder
+    FOREIGN KEY (high_bidder_user_id) REFERENCES users(user_id)
+    ON DELETE SET NULL ON UPDATE CASCADE,
+
+    CONSTRAINT fk_products_winner
+    FOREIGN KEY (winner_user_id) REFERENCES users(user_id)
+    ON DELETE SET NULL ON UPDATE CASCADE,
+
+    -- Keyset pagination for listings: ORDER BY created_at DESC, product_id DESC
+    INDEX idx_products_created (created_at, product_id),
+    -- Open auctions by deadline, reloaded by AuctionCloser at startup
+    INDEX idx_products_closing (closed_at, ends_at)
     );
 
 -- BIDS (bidding history)
@@ -66,6 +93,18 @@ CREATE TABLE IF NOT EXISTS bids (
     INDEX idx_bids_product_created (product_id, created_at)
     );
 
+-- BLOBS (content-addressed uploads, named by SHA-256; see FileSystemBlobStore)
+CREATE TABLE IF NOT EXISTS blobs (
+                                     blob_key         VARCHAR(80) PRIMARY KEY,
+                                     size_bytes       BIGINT NOT NULL,
+    -- Products whose image_url points at the blob; incremented by ProductDao.create
+    ref_count        INT NOT NULL DEFAULT 0,
+    created_at       TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_blobs_unreferenced (ref_count, last_uploaded_at)
+    );
+
 -- SEED DATA
 -- Default Admin: admin / password
 INSERT INTO users (username, email, password_hash, role)
@@ -79,12 +118,12 @@ INSERT INTO departments (name) VALUES ('Fashion') ON DUPLICATE KEY UPDATE name=n
 INSERT INTO departments (name) VALUES ('Home & Garden') ON DUPLICATE KEY UPDATE name=name;
 
 -- Sample Products (seller_user_id=1 is admin)
-INSERT INTO products (seller_user_id, department_id, name, description, image_url, starting_bid) VALUES
-(1, 1, 'Vintage Polaroid Camera', 'Classic instant camera from the 1970s in excellent condition.', 'https://images.unsplash.com/photo-1526170375885-4d8ecf77b99f?w=400', 45.00),
-(1, 1, 'Mechanical Keyboard', 'Cherry MX Blue switches, RGB backlit, compact 65% layout.', 'https://images.unsplash.com/photo-1595225476474-87563907a212?w=400', 89.00),
-(1, 2, 'Rare Vinyl Record Collection', 'Set of 20 classic rock albums from the 60s and 70s.', 'https://images.unsplash.com/photo-1603048588665-791ca8aea617?w=400', 150.00),
-(1, 2, 'Antique Pocket Watch', 'Gold-plated pocket watch circa 1920, fully functional.', 'https://images.unsplash.com/photo-1509048191080-d2984bad6ae5?w=400', 275.00),
-(1, 3, 'Leather Messenger Bag', 'Handcrafted genuine leather bag, perfect for laptops.', 'https://images.unsplash.com/photo-1548036328-c9fa89d128fa?w=400', 65.00),
-(1, 4, 'Ceramic Plant Pots Set', 'Set of 3 minimalist ceramic pots in matte white.', 'https://images.unsplash.com/photo-1485955900006-10f4d324d411?w=400', 35.00)
+INSERT INTO products (seller_user_id, department_id, name, description, image_url, starting_bid, current_price) VALUES
+(1, 1, 'Vintage Polaroid Camera', 'Classic instant camera from the 1970s in excellent condition.', 'https://images.unsplash.com/photo-1526170375885-4d8ecf77b99f?w=400', 45.00, 45.00),
+(1, 1, 'Mechanical Keyboard', 'Cherry MX Blue switches, RGB backlit, compact 65% layout.', 'https://images.unsplash.com/photo-1595225476474-87563907a212?w=400', 89.00, 89.00),
+(1, 2, 'Rare Vinyl Record Collection', 'Set of 20 classic rock albums from the 60s and 70s.', 'https://images.unsplash.com/photo-1603048588665-791ca8aea617?w=400', 150.00, 150.00),
+(1, 2, 'Antique Pocket Watch', 'Gold-plated pocket watch circa 1920, fully functional.', 'https://images.unsplash.com/photo-1509048191080-d2984bad6ae5?w=400', 275.00, 275.00),
+(1, 3, 'Leather Messenger Bag', 'Handcrafted genuine leather bag, perfect for laptops.', 'https://images.unsplash.com/photo-1548036328-c9fa89d128fa?w=400', 65.00, 65.00),
+(1, 4, 'Ceramic Plant Pots Set', 'Set of 3 minimalist ceramic pots in matte white.', 'https://images.unsplash.com/photo-1485955900006-10f4d324d411?w=400', 35.00, 35.00)
 ON DUPLICATE KEY UPDATE name=name;
 
@@ -0,0 +1,78 @@
+package com.nettenz.ebay.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load test settings, given on the command line as {@code key=value} arguments.
+ *
+ * <pre>{@code
+ * java -jar loadtest/target/loadtest.jar users=5000 products=20000 bids=200000 clients=64 duration=30
+ * }</pre>
+ *
+ * <p>Application settings are passed as JVM system properties, which {@code Env} reads like environment
+ * variables: {@code java -DDB_POOL_MAX_SIZE=40 -DSESSION_MODE=cookie ... -jar loadtest.jar}.</p>
+ */
+record Config(
+        Path war,
+        Path schema,
+        int users,
+        int products,
+        int bids,
+        int clients,
+        int warmupSeconds,
+        int durationSeconds,
+        List<Scenario> scenarios,
+        long seed,
+        boolean virtualThreads,
+        Path out
+) {
+
+    static Config parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        Config config = new Config(
+                Path.of(take(values, "war", "target/ebay-1.0-SNAPSHOT.war")),
+                Path.of(take(values, "schema", "db/schema.sql")),
+                Integer.parseInt(take(values, "users", "1000")),
+                Integer.parseInt(take(values, "products", "5000")),
+                Integer.parseInt(take(values, "bids", "50000")),
+                Integer.parseInt(take(values, "clients", "32")),
+                Integer.parseInt(take(values, "warmup", "5")),
+                Integer.parseInt(take(values, "duration", "20")),
+                scenarios(take(values, "scenarios", "browse,view,bid,login")),
+                Long.parseLong(take(values, "seed", "42")),
+                Boolean.parseBoolean(take(values, "virtualThreads", "false")),
+                Path.of(take(values, "out", "loadtest-result.json")));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown setting(s): " + values.keySet());
+        }
+        if (config.users() < 2 || config.products() < 1 || config.clients() < 1 || config.durationSeconds() < 1) {
+            throw new IllegalArgumentException("Need users >= 2, products >= 1, clients >= 1 and duration >= 1");
+        }
+        return config;
+    }
+
+    private static String take(Map<String, String> values, String key, String defaultValue) {
+        String value = values.remove(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static List<Scenario> scenarios(String names) {
+        List<Scenario> list = new ArrayList<>();
+        for (String name : names.split(",")) {
+            list.add(Scenario.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        }
+        return List.copyOf(list);
+    }
+}
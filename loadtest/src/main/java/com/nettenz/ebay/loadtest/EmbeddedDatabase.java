@@ -0,0 +1,233 @@
+package com.nettenz.ebay.loadtest;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * In-memory H2 database in MySQL compatibility mode, created from {@code db/schema.sql} and seeded
+ * deterministically: the same seed and scale always produce the same rows.
+ *
+ * <p>H2 is not MySQL: locking, the optimizer and the wire protocol differ, so absolute numbers are lower
+ * than against a real server. The harness is for comparing releases under identical conditions. For
+ * production-like figures, run the same scenarios against a deployed node.</p>
+ */
+final class EmbeddedDatabase implements AutoCloseable {
+
+    static final String URL = "jdbc:h2:mem:ebay;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    static final String USER = "sa";
+    static final String PASSWORD = "loadtest";
+
+    /** Password of every seeded user ({@code user1}, {@code user2}, ...). */
+    static final String USER_PASSWORD = "loadtest-password";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] WORDS = {
+            "vintage", "camera", "watch", "leather", "bag", "vinyl", "record", "keyboard", "lamp", "ceramic",
+            "antique", "silver", "wooden", "chair", "guitar", "poster", "jacket", "boots", "clock", "radio",
+            "mirror", "painting", "coin", "stamp", "book", "console", "lens", "tripod", "vase", "rug"};
+
+    private final Connection keepAlive; // holds the in-memory database open
+
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> productIds = new ArrayList<>();
+
+    EmbeddedDatabase(Path schema) throws SQLException, IOException {
+        keepAlive = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Statement st = keepAlive.createStatement()) {
+            for (String sql : statements(Files.readString(schema))) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Adds {@code users} users, {@code products} products spread over the last 30 days and {@code bids} bids
+     * on random products, with each product's bid summary matching its bids.
+     */
+    void seed(int users, int products, int bids, long seed) throws SQLException {
+        Random random = new Random(seed);
+        String hash = BCrypt.hashpw(USER_PASSWORD, BCrypt.gensalt(12));
+        long now = System.currentTimeMillis();
+
+        keepAlive.setAutoCommit(false);
+        try (PreparedStatement ps = keepAlive.prepareStatement(
+                "INSERT INTO users (username, email, password_hash, role) VALUES (?, ?, ?, 'USER')")) {
+            for (int i = 1; i <= users; i++) {
+                ps.setString(1, "user" + i);
+                ps.setString(2, "user" + i + "@loadtest.invalid");
+                ps.setString(3, hash);
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+        userIds.addAll(ids("SELECT user_id FROM users WHERE role = 'USER' ORDER BY user_id"));
+        List<Long> departments = ids("SELECT department_id FROM departments ORDER BY department_id");
+
+        try (PreparedStatement ps = keepAlive.prepareStatement("""
+                INSERT INTO products (seller_user_id, department_id, name, description, starting_bid, current_price, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)""")) {
+            for (int i = 1; i <= products; i++) {
+                BigDecimal start = BigDecimal.valueOf(100 + random.nextInt(50_000), 2);
+                ps.setLong(1, pick(userIds, random));
+                ps.setObject(2, departments.isEmpty() ? null : pick(departments, random));
+                ps.setString(3, words(random, 3));
+                ps.setString(4, words(random, 20));
+                ps.setBigDecimal(5, start);
+                ps.setBigDecimal(6, start);
+                ps.setTimestamp(7, new Timestamp(now - random.nextLong(30L * 24 * 3600 * 1000)));
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+        keepAlive.commit();
+
+        List<long[]> sellers = new ArrayList<>(); // product id, seller id
+        List<BigDecimal> prices = new ArrayList<>();
+        try (Statement st = keepAlive.createStatement();
+             ResultSet rs = st.executeQuery("SELECT product_id, seller_user_id, current_price FROM products ORDER BY product_id")) {
+            while (rs.next()) {
+                sellers.add(new long[]{rs.getLong(1), rs.getLong(2)});
+                prices.add(rs.getBigDecimal(3));
+                productIds.add(rs.getLong(1));
+            }
+        }
+
+        int[] counts = new int[sellers.size()];
+        long[] highBidders = new long[sellers.size()];
+        try (PreparedStatement ps = keepAlive.prepareStatement(
+                "INSERT INTO bids (product_id, bidder_user_id, amount, created_at) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= bids; i++) {
+                int p = random.nextInt(sellers.size());
+                long bidder;
+                do {
+                    bidder = pick(userIds, random);
+                } while (bidder == sellers.get(p)[1]);
+                BigDecimal amount = prices.get(p).add(BigDecimal.valueOf(50 + random.nextInt(500), 2));
+                prices.set(p, amount);
+                counts[p]++;
+                highBidders[p] = bidder;
+                ps.setLong(1, sellers.get(p)[0]);
+                ps.setLong(2, bidder);
+                ps.setBigDecimal(3, amount);
+                ps.setTimestamp(4, new Timestamp(now - (bids - i) * 1000L));
+                add(ps, i);
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = keepAlive.prepareStatement(
+                "UPDATE products SET current_price = ?, bid_count = ?, high_bidder_user_id = ? WHERE product_id = ?")) {
+            int batched = 0;
+            for (int p = 0; p < sellers.size(); p++) {
+                if (counts[p] == 0) {
+                    continue;
+                }
+                ps.setBigDecimal(1, prices.get(p));
+                ps.setInt(2, counts[p]);
+                ps.setLong(3, highBidders[p]);
+                ps.setLong(4, sellers.get(p)[0]);
+                add(ps, ++batched);
+            }
+            ps.executeBatch();
+        }
+        keepAlive.commit();
+        keepAlive.setAutoCommit(true);
+    }
+
+    List<Long> userIds() {
+        return userIds;
+    }
+
+    List<Long> productIds() {
+        return productIds;
+    }
+
+    /** Current price and bid count of a product, straight from the database. */
+    Auction auction(long productId) throws SQLException {
+        try (PreparedStatement ps = keepAlive.prepareStatement(
+                "SELECT current_price, bid_count FROM products WHERE product_id = ?")) {
+            ps.setLong(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new Auction(rs.getBigDecimal(1), rs.getInt(2));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("SHUTDOWN");
+        }
+        keepAlive.close();
+    }
+
+    /**
+     * Splits the schema into statements, leaving out what only applies to a MySQL server
+     * ({@code CREATE DATABASE}, {@code USE}).
+     */
+    static List<String> statements(String script) {
+        StringBuilder sql = new StringBuilder();
+        for (String line : script.split("\n")) {
+            if (!line.trim().startsWith("--")) {
+                sql.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : sql.toString().split(";\\s*\n")) {
+            String s = statement.trim();
+            String upper = s.toUpperCase(Locale.ROOT);
+            if (!s.isEmpty() && !upper.startsWith("CREATE DATABASE") && !upper.startsWith("USE ")) {
+                statements.add(s);
+            }
+        }
+        return statements;
+    }
+
+    private List<Long> ids(String sql) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement st = keepAlive.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static void add(PreparedStatement ps, int n) throws SQLException {
+        ps.addBatch();
+        if (n % BATCH_SIZE == 0) {
+            ps.executeBatch();
+        }
+    }
+
+    private static long pick(List<Long> ids, Random random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+
+    record Auction(BigDecimal currentPrice, int bidCount) {}
+}
@@ -0,0 +1,205 @@
+package com.nettenz.ebay.loadtest;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleState;
+import org.apache.catalina.startup.Tomcat;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test. Creates and seeds an in-process database, deploys the packaged war in embedded Tomcat
+ * against it, runs each {@link Scenario} in turn (warmup, then a measured period) and reports throughput,
+ * latency percentiles and error rates per route.
+ *
+ * <p>Client and server share one JVM and its CPUs; compare runs made on the same machine with the same
+ * settings, not absolute numbers across machines. See {@link Config} for the settings.</p>
+ */
+public final class LoadTest {
+
+    // Held so the level set in main is not lost when the logger is garbage collected
+    private static final Logger TOMCAT_LOG = Logger.getLogger("org.apache");
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        if (!Files.isRegularFile(config.war())) {
+            throw new IllegalStateException("No war at " + config.war() + "; run mvn package first or pass war=...");
+        }
+        TOMCAT_LOG.setLevel(Level.WARNING);
+
+        Path work = Files.createTempDirectory("ebay-loadtest");
+        try (EmbeddedDatabase db = new EmbeddedDatabase(config.schema())) {
+            long start = System.nanoTime();
+            db.seed(config.users(), config.products(), config.bids(), config.seed());
+            System.out.printf("Seeded %d users, %d products and %d bids in %d ms%n",
+                    config.users(), config.products(), config.bids(), (System.nanoTime() - start) / 1_000_000);
+
+            configureApplication(work);
+            Tomcat tomcat = startTomcat(config, work);
+            try {
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .followRedirects(HttpClient.Redirect.NEVER)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .build();
+                long hot = db.productIds().getFirst();
+                VirtualUser.Target target = new VirtualUser.Target(client,
+                        "http://127.0.0.1:" + tomcat.getConnector().getLocalPort(), config.users(),
+                        db.productIds(), hot, new AtomicReference<>(db.auction(hot).currentPrice()));
+
+                Report report = new Report(config);
+                for (Scenario scenario : config.scenarios()) {
+                    System.out.printf("Running %s...%n", scenario.name().toLowerCase(Locale.ROOT));
+                    int[] bidsAtStart = new int[1];
+                    Map<String, RouteStats> stats = run(scenario, config, target,
+                            () -> bidsAtStart[0] = bidCount(db, hot));
+                    Map<String, Object> notes = new LinkedHashMap<>();
+                    if (scenario == Scenario.BID) {
+                        EmbeddedDatabase.Auction auction = db.auction(hot);
+                        notes.put("bidsAccepted", auction.bidCount() - bidsAtStart[0]);
+                        notes.put("finalPrice", auction.currentPrice());
+                    }
+                    report.add(scenario, stats, notes);
+                }
+                report.print(System.out);
+                report.write(config.out());
+                System.out.printf("%nResults written to %s%n", config.out().toAbsolutePath());
+            } finally {
+                tomcat.stop();
+                tomcat.destroy();
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Runs one scenario with {@code clients} concurrent users and returns the stats of the measured period.
+     *
+     * @param atMeasureStart called when the warmup ends
+     */
+    static Map<String, RouteStats> run(Scenario scenario, Config config, VirtualUser.Target target,
+                                       Runnable atMeasureStart) throws InterruptedException, ExecutionException {
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < config.clients(); i++) {
+            users.add(new VirtualUser(target, config.seed() * 1_000_003 + scenario.ordinal() * 10_007L + i,
+                    "user" + (1 + i % config.users())));
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (VirtualUser user : users) {
+                futures.add(executor.submit(() -> {
+                    scenario.start(user);
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.warmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        List<Map<String, RouteStats>> measured = new ArrayList<>();
+        futures.clear();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (VirtualUser user : users) {
+                Map<String, RouteStats> stats = new HashMap<>();
+                measured.add(stats);
+                futures.add(executor.submit(() -> {
+                    user.recordInto(new HashMap<>());
+                    while (System.nanoTime() < warmupEnd) {
+                        scenario.step(user);
+                    }
+                    user.recordInto(stats);
+                    while (System.nanoTime() < end) {
+                        scenario.step(user);
+                    }
+                    return null;
+                }));
+            }
+            TimeUnit.NANOSECONDS.sleep(warmupEnd - System.nanoTime());
+            atMeasureStart.run();
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+
+        Map<String, RouteStats> merged = new HashMap<>();
+        for (Map<String, RouteStats> stats : measured) {
+            stats.forEach((route, s) -> merged.computeIfAbsent(route, r -> new RouteStats()).merge(s));
+        }
+        return merged;
+    }
+
+    /**
+     * Points the application at the embedded database. Set as system properties, which {@code Env} reads;
+     * anything given with {@code -D} on the command line is left alone.
+     */
+    private static void configureApplication(Path work) {
+        setDefault("DB_URL", EmbeddedDatabase.URL);
+        setDefault("DB_USER", EmbeddedDatabase.USER);
+        setDefault("DB_PASS", EmbeddedDatabase.PASSWORD);
+        setDefault("IMAGE_STORE_DIR", work.resolve("uploads").toString());
+        // Every virtual user connects from 127.0.0.1; the per-username limits still apply
+        setDefault("AUTH_IP_BURST", "1000000");
+        setDefault("AUTH_IP_PER_MINUTE", "1000000000");
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private static Tomcat startTomcat(Config config, Path work) throws Exception {
+        Path appBase = Files.createDirectories(work.resolve("webapps"));
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(work.toString());
+        tomcat.setPort(0);
+        tomcat.getHost().setAppBase(appBase.toString());
+        if (config.virtualThreads()) {
+            tomcat.getConnector().setProperty("useVirtualThreads", "true");
+        } else {
+            tomcat.getConnector();
+        }
+        Context context = tomcat.addWebapp("", config.war().toAbsolutePath().toString());
+        tomcat.start();
+        if (context.getState() != LifecycleState.STARTED) {
+            tomcat.stop();
+            throw new IllegalStateException("The application failed to start; see the log above");
+        }
+        return tomcat;
+    }
+
+    private static int bidCount(EmbeddedDatabase db, long productId) {
+        try {
+            return db.auction(productId).bidCount();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.nettenz.ebay.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-route results of a run, printed as a table and written as JSON so that runs of different releases
+ * can be compared by a script.
+ */
+final class Report {
+
+    private final Config config;
+    private final List<Phase> phases = new ArrayList<>();
+
+    Report(Config config) {
+        this.config = config;
+    }
+
+    void add(Scenario scenario, Map<String, RouteStats> stats, Map<String, Object> notes) {
+        Map<String, RouteStats.Summary> routes = new TreeMap<>();
+        stats.forEach((route, s) -> routes.put(route, s.summarize(config.durationSeconds())));
+        phases.add(new Phase(scenario, routes, notes));
+    }
+
+    void print(PrintStream out) {
+        for (Phase phase : phases) {
+            out.printf(Locale.ROOT, "%n%s: %d clients, %d s%n", phase.scenario().name().toLowerCase(Locale.ROOT),
+                    config.clients(), config.durationSeconds());
+            out.printf(Locale.ROOT, "  %-20s %9s %9s %8s %8s %8s %8s %8s %8s%n",
+                    "route", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            phase.routes().forEach((route, s) -> {
+                out.printf(Locale.ROOT, "  %-20s %9d %9.1f %7.2f%% %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                        route, s.requests(), s.throughput(), s.errorRate() * 100,
+                        s.p50(), s.p90(), s.p99(), s.p999(), s.max());
+                out.printf(Locale.ROOT, "  %-20s %s%n", "", new TreeMap<>(s.outcomes()));
+            });
+            phase.notes().forEach((k, v) -> out.printf(Locale.ROOT, "  %s: %s%n", k, v));
+        }
+    }
+
+    void write(Path file) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"config\": {")
+                .append("\"users\": ").append(config.users())
+                .append(", \"products\": ").append(config.products())
+                .append(", \"bids\": ").append(config.bids())
+                .append(", \"clients\": ").append(config.clients())
+                .append(", \"warmupSeconds\": ").append(config.warmupSeconds())
+                .append(", \"durationSeconds\": ").append(config.durationSeconds())
+                .append(", \"seed\": ").append(config.seed())
+                .append(", \"virtualThreads\": ").append(config.virtualThreads())
+                .append("},\n  \"environment\": {")
+                .append("\"java\": ").append(quote(System.getProperty("java.version")))
+                .append(", \"cpus\": ").append(Runtime.getRuntime().availableProcessors())
+                .append(", \"maxHeapMb\": ").append(Runtime.getRuntime().maxMemory() >> 20)
+                .append("},\n  \"scenarios\": [");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            json.append(i > 0 ? ",\n" : "\n").append("    {\"name\": ")
+                    .append(quote(phase.scenario().name().toLowerCase(Locale.ROOT))).append(", \"routes\": [");
+            int r = 0;
+            for (Map.Entry<String, RouteStats.Summary> e : phase.routes().entrySet()) {
+                RouteStats.Summary s = e.getValue();
+                json.append(r++ > 0 ? "," : "").append("\n      {\"route\": ").append(quote(e.getKey()))
+                        .append(", \"requests\": ").append(s.requests())
+                        .append(", \"throughput\": ").append(number(s.throughput()))
+                        .append(", \"errorRate\": ").append(number(s.errorRate()))
+                        .append(", \"latencyMs\": {\"p50\": ").append(number(s.p50()))
+                        .append(", \"p90\": ").append(number(s.p90()))
+                        .append(", \"p99\": ").append(number(s.p99()))
+                        .append(", \"p999\": ").append(number(s.p999()))
+                        .append(", \"max\": ").append(number(s.max()))
+                        .append("}, \"outcomes\": {");
+                int o = 0;
+                for (Map.Entry<String, Integer> outcome : new TreeMap<>(s.outcomes()).entrySet()) {
+                    json.append(o++ > 0 ? ", " : "").append(quote(outcome.getKey())).append(": ").append(outcome.getValue());
+                }
+                json.append("}}");
+            }
+            json.append("\n    ], \"notes\": {");
+            int n = 0;
+            for (Map.Entry<String, Object> note : phase.notes().entrySet()) {
+                json.append(n++ > 0 ? ", " : "").append(quote(note.getKey())).append(": ")
+                        .append(note.getValue() instanceof Number ? note.getValue().toString() : quote(String.valueOf(note.getValue())));
+            }
+            json.append("}}");
+        }
+        json.append("\n  ]\n}\n");
+        Files.writeString(file, json);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private record Phase(Scenario scenario, Map<String, RouteStats.Summary> routes, Map<String, Object> notes) {}
+}
@@ -0,0 +1,69 @@
+package com.nettenz.ebay.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one route. Every latency is kept, so percentiles are exact. Each virtual user
+ * records into its own instance, and the instances are merged after the run, so recording is never contended.
+ */
+final class RouteStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private final Map<String, Integer> outcomes = new TreeMap<>();
+
+    /**
+     * @param outcome HTTP status, or the exception's simple name if the request failed
+     */
+    void record(long nanos, String outcome, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (error) {
+            errors++;
+        }
+        outcomes.merge(outcome, 1, Integer::sum);
+    }
+
+    void merge(RouteStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        other.outcomes.forEach((k, v) -> outcomes.merge(k, v, Integer::sum));
+    }
+
+    Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new Summary(count, count / seconds, count == 0 ? 0 : (double) errors / count,
+                millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99), millis(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1] / 1e6, Map.copyOf(outcomes));
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    record Summary(
+            int requests,
+            double throughput,
+            double errorRate,
+            double p50,
+            double p90,
+            double p99,
+            double p999,
+            double max,
+            Map<String, Integer> outcomes
+    ) {}
+}
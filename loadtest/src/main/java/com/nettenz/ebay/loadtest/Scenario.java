@@ -0,0 +1,106 @@
+package com.nettenz.ebay.loadtest;
+
+import java.math.BigDecimal;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The scripted workloads. Each runs on its own, with every virtual user repeating {@link #step} in a loop
+ * without think time, so the numbers describe the server at saturation for that kind of traffic.
+ */
+enum Scenario {
+
+    /** Listing pages: mostly the first page, sometimes following the "next page" link of the last one. */
+    BROWSE {
+        private static final Pattern NEXT = Pattern.compile("/products\\?after=([^\"&]+)");
+
+        @Override
+        void step(VirtualUser user) throws InterruptedException {
+            String next = user.random.nextInt(3) == 0 ? user.nextPage : null;
+            HttpResponse<String> response = user.get("GET /products",
+                    next == null ? "/products" : "/products?after=" + next, r -> r.statusCode() == 200);
+            if (response != null) {
+                Matcher m = NEXT.matcher(response.body());
+                user.nextPage = m.find() ? m.group(1) : null;
+            }
+        }
+    },
+
+    /** Product detail pages (logged in), uniformly over the whole catalogue, so most are cache misses at scale. */
+    VIEW {
+        @Override
+        void start(VirtualUser user) throws InterruptedException {
+            logIn(user);
+        }
+
+        @Override
+        void step(VirtualUser user) throws InterruptedException {
+            var ids = user.target.productIds();
+            user.get("GET /products/{id}", "/products/" + ids.get(user.random.nextInt(ids.size())),
+                    r -> r.statusCode() == 200);
+        }
+    },
+
+    /**
+     * Every user bids on the same product, each a maximum a few cents above the highest one seen so far. Many
+     * bids lose the race and are rejected as too low or outbid by the leader's maximum, which are normal
+     * outcomes, not errors.
+     */
+    BID {
+        @Override
+        void start(VirtualUser user) throws InterruptedException {
+            logIn(user);
+        }
+
+        @Override
+        void step(VirtualUser user) throws InterruptedException {
+            BigDecimal amount = user.target.hotPrice().get().add(BigDecimal.valueOf(1 + user.random.nextInt(50), 2));
+            HttpResponse<String> response = user.post("POST /bid", "/bid", Map.of(
+                            "productId", Long.toString(user.target.hotProductId()),
+                            "amount", amount.toPlainString()),
+                    Scenario::redirectedPastLogin);
+            if (response != null && response.statusCode() == 302) {
+                user.target.hotPrice().accumulateAndGet(amount, BigDecimal::max);
+            }
+        }
+    },
+
+    /** Logins as random users: bcrypt verification, its worker pool and the login throttle. */
+    LOGIN {
+        @Override
+        void step(VirtualUser user) throws InterruptedException {
+            login(user, "user" + (1 + user.random.nextInt(user.target.userCount())));
+        }
+    };
+
+    /** Runs once per user before the warmup starts (for example to log in); not recorded. */
+    void start(VirtualUser user) throws InterruptedException {}
+
+    abstract void step(VirtualUser user) throws InterruptedException;
+
+    /**
+     * Logs in as the user's own account. Concurrent logins may be turned away while bcrypt is saturated,
+     * so this keeps trying for a while.
+     */
+    private static void logIn(VirtualUser user) throws InterruptedException {
+        for (int attempt = 0; !login(user, user.username); attempt++) {
+            if (attempt == 100) {
+                throw new IllegalStateException("Could not log in as " + user.username);
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static boolean login(VirtualUser user, String username) throws InterruptedException {
+        HttpResponse<String> response = user.post("POST /login", "/login", Map.of("username", username, "password", EmbeddedDatabase.USER_PASSWORD),
+                Scenario::redirectedPastLogin);
+        return response != null && redirectedPastLogin(response);
+    }
+
+    /** Successful logins and bids both redirect; being sent to the login page means the session was lost. */
+    private static boolean redirectedPastLogin(HttpResponse<String> response) {
+        return response.statusCode() == 302 && !response.headers().firstValue("Location").orElse("").contains("/login");
+    }
+}
@@ -0,0 +1,121 @@
+package com.nettenz.ebay.loadtest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * One simulated browser: its own cookies and random stream, and the stats of the requests it made.
+ * Redirects are not followed, so each recorded latency is a single request.
+ */
+final class VirtualUser {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    final Target target;
+    final Random random;
+    final String username;
+
+    /** Scenario state: the listing's next-page token from the last page this user saw. */
+    String nextPage;
+
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+    private Map<String, RouteStats> stats = new HashMap<>();
+
+    VirtualUser(Target target, long seed, String username) {
+        this.target = target;
+        this.random = new Random(seed);
+        this.username = username;
+    }
+
+    /**
+     * Directs subsequent recordings to {@code stats} (one map for warmup, one for the measured period).
+     */
+    void recordInto(Map<String, RouteStats> stats) {
+        this.stats = stats;
+    }
+
+    HttpResponse<String> get(String route, String path, Predicate<HttpResponse<String>> ok) throws InterruptedException {
+        return send(route, request(path).GET().build(), ok);
+    }
+
+    HttpResponse<String> post(String route, String path, Map<String, String> form,
+                              Predicate<HttpResponse<String>> ok) throws InterruptedException {
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((k, v) -> body.add(URLEncoder.encode(k, StandardCharsets.UTF_8) + "="
+                + URLEncoder.encode(v, StandardCharsets.UTF_8)));
+        return send(route, request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), ok);
+    }
+
+    /**
+     * @return the response, or null if the request failed with an I/O error (recorded as an error)
+     */
+    private HttpResponse<String> send(String route, HttpRequest request, Predicate<HttpResponse<String>> ok)
+            throws InterruptedException {
+        RouteStats routeStats = stats.computeIfAbsent(route, r -> new RouteStats());
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = target.client().send(request, HttpResponse.BodyHandlers.ofString());
+            long nanos = System.nanoTime() - start;
+            keepCookies(response);
+            routeStats.record(nanos, Integer.toString(response.statusCode()), !ok.test(response));
+            return response;
+        } catch (IOException e) {
+            routeStats.record(System.nanoTime() - start, e.getClass().getSimpleName(), true);
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target.baseUrl() + path)).timeout(REQUEST_TIMEOUT);
+        if (!cookies.isEmpty()) {
+            StringJoiner header = new StringJoiner("; ");
+            cookies.forEach((k, v) -> header.add(k + "=" + v));
+            builder.header("Cookie", header.toString());
+        }
+        return builder;
+    }
+
+    private void keepCookies(HttpResponse<?> response) {
+        for (String setCookie : response.headers().allValues("Set-Cookie")) {
+            String pair = setCookie.split(";", 2)[0];
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String name = pair.substring(0, eq).trim();
+            String value = pair.substring(eq + 1).trim();
+            if (value.isEmpty() || setCookie.toLowerCase(Locale.ROOT).contains("max-age=0")) {
+                cookies.remove(name);
+            } else {
+                cookies.put(name, value);
+            }
+        }
+    }
+
+    /**
+     * The application under test and the data shared by all users.
+     *
+     * @param hotPrice highest bid on the hot product seen so far by any user
+     */
+    record Target(HttpClient client, String baseUrl, int userCount, List<Long> productIds, long hotProductId,
+                  AtomicReference<BigDecimal> hotPrice) {}
+}
@@ -0,0 +1,123 @@
+package com.nettenz.ebay.assets;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step (run by Maven in {@code prepare-package}): fingerprints and precompresses static assets.
+ * Lives in the build-only source tree and is launched as a single source file, so it is never compiled
+ * into the war.
+ *
+ * <p>For each stylesheet and script under the webapp directory it writes a copy named after its content
+ * hash ({@code css/style.3f2a9c1b0e.css}), plus {@code .gz} and {@code .br} encodings of that copy when
+ * they are smaller, and records the names in {@link AssetManifest#MANIFEST}. Compression happens once, at
+ * maximum level, rather than per request. The output directory is packaged into the war alongside the
+ * webapp sources.</p>
+ *
+ * <p>Usage: {@code BuildAssets <webapp dir> <output dir>}</p>
+ */
+public final class BuildAssets {
+
+    private static final List<String> EXTENSIONS = List.of(".css", ".js", ".svg");
+    private static final int HASH_CHARS = 10;
+
+    private BuildAssets() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BuildAssets <webapp dir> <output dir>");
+            System.exit(2);
+        }
+        Path webapp = Path.of(args[0]);
+        Path out = Path.of(args[1]);
+        boolean brotli = brotliAvailable();
+
+        TreeMap<String, String> manifest = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(webapp)) {
+            for (Path file : files.filter(BuildAssets::isAsset).toList()) {
+                String logical = webapp.relativize(file).toString().replace('\\', '/');
+                byte[] content = Files.readAllBytes(file);
+                String fingerprinted = fingerprint(logical, content);
+                Path target = out.resolve(fingerprinted);
+                Files.createDirectories(target.getParent());
+                Files.write(target, content);
+
+                byte[] gzip = gzip(content);
+                if (gzip.length < content.length) {
+                    Files.write(target.resolveSibling(target.getFileName() + ".gz"), gzip);
+                }
+                if (brotli) {
+                    byte[] br = Encoder.compress(content, new Encoder.Parameters().setQuality(11));
+                    if (br.length < content.length) {
+                        Files.write(target.resolveSibling(target.getFileName() + ".br"), br);
+                    }
+                }
+                manifest.put(logical, fingerprinted);
+                System.out.printf("[assets] %s -> %s (%d bytes, gzip %d%s)%n", logical, fingerprinted,
+                        content.length, gzip.length, brotli ? ", brotli" : "");
+            }
+        }
+
+        Path manifestFile = out.resolve(AssetManifest.MANIFEST.substring(1));
+        Files.createDirectories(manifestFile.getParent());
+        // Written by hand rather than with Properties.store, which adds a timestamp and breaks reproducible builds
+        StringBuilder lines = new StringBuilder("# Generated by BuildAssets: logical path = fingerprinted path\n");
+        manifest.forEach((logical, fingerprinted) -> lines.append(logical).append('=').append(fingerprinted).append('\n'));
+        Files.writeString(manifestFile, lines);
+    }
+
+    private static boolean isAsset(Path file) {
+        String name = file.getFileName().toString();
+        return Files.isRegularFile(file)
+                && !file.toString().replace('\\', '/').contains("/WEB-INF/")
+                && EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    private static String fingerprint(String logical, byte[] content) {
+        try {
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content))
+                    .substring(0, HASH_CHARS);
+            int dot = logical.lastIndexOf('.');
+            return logical.substring(0, dot) + "." + hash + logical.substring(dot);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 3);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gz.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Brotli needs a native library; on platforms brotli4j does not cover, only gzip is produced.
+     */
+    private static boolean brotliAvailable() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable t) {
+            System.out.println("[assets] Brotli unavailable (" + t + "); writing gzip only");
+            return false;
+        }
+    }
+}
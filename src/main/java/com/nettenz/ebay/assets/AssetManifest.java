@@ -0,0 +1,63 @@
+package com.nettenz.ebay.assets;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Maps static asset paths to the fingerprinted names written by {@code BuildAssets} (src/build/java).
+ *
+ * <p>Pages link assets through {@link #url}, so every deploy that changes a file also changes its URL
+ * and the old one can be cached forever. Without a manifest (running from sources, before packaging)
+ * assets are linked by their plain names.</p>
+ */
+public final class AssetManifest {
+
+    /** Location inside the webapp. */
+    public static final String MANIFEST = "/WEB-INF/asset-manifest.properties";
+
+    private static volatile Map<String, String> fingerprinted = Map.of();
+    private static volatile Set<String> published = Set.of();
+
+    private AssetManifest() {}
+
+    /**
+     * Loads the manifest, if the webapp has one. Called once at startup.
+     */
+    public static void load(ServletContext context) {
+        Map<String, String> map = new HashMap<>();
+        try (InputStream in = context.getResourceAsStream(MANIFEST)) {
+            if (in != null) {
+                Properties props = new Properties();
+                props.load(in);
+                props.forEach((k, v) -> map.put((String) k, (String) v));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + MANIFEST, e);
+        }
+        published = Set.copyOf(map.values());
+        fingerprinted = Map.copyOf(map);
+    }
+
+    /**
+     * @param path webapp-relative path without leading slash, e.g. {@code css/style.css}
+     * @return the URL to link, including the context path
+     */
+    public static String url(HttpServletRequest req, String path) {
+        return req.getContextPath() + "/" + fingerprinted.getOrDefault(path, path);
+    }
+
+    /**
+     * @return the webapp-relative fingerprinted paths (no leading slash)
+     */
+    public static Set<String> fingerprintedPaths() {
+        return published;
+    }
+}
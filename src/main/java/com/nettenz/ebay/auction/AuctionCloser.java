@@ -0,0 +1,176 @@
+package com.nettenz.ebay.auction;
+
+import com.nettenz.ebay.dao.AuctionDao;
+import com.nettenz.ebay.metrics.Counter;
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.metrics.Metrics;
+import com.nettenz.ebay.util.Env;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Closes auctions at their end time and records the winner.
+ *
+ * <p>Deadlines are kept in a {@link TimerWheel} driven by one thread every {@code AUCTION_CLOSE_TICK_MS}.
+ * Auctions that expire on the same tick are closed together in batches of {@code AUCTION_CLOSE_BATCH_SIZE}:
+ * the bid engine first seals them (no more bids, queued ones written), then {@link AuctionDao#closeAuctions}
+ * picks every winner in one query and marks the products closed in one transaction. A batch that fails is
+ * retried a few seconds later.</p>
+ *
+ * <p>The wheel only lives in memory: at startup the open auctions are reloaded from the database, and new
+ * listings are added by {@code ProductDao.create}. Closing is idempotent, so several nodes may run a closer;
+ * whichever gets to an auction first closes it.</p>
+ */
+public final class AuctionCloser {
+
+    private static final Logger LOG = Logger.getLogger(AuctionCloser.class.getName());
+
+    private static final AuctionCloser INSTANCE = new AuctionCloser(
+            new AuctionDao(), BidEngine.instance(),
+            Env.getLong("AUCTION_CLOSE_TICK_MS", 100),
+            Env.getInt("AUCTION_CLOSE_BATCH_SIZE", 500));
+
+    private static final int LOAD_PAGE_SIZE = 5_000;
+    private static final long RETRY_DELAY_MS = 5_000;
+
+    private static final Counter CLOSED = Metrics.instance().counter("auctions_closed_total",
+            "Auctions closed at their end time");
+    private static final Counter FAILED = Metrics.instance().counter("auction_close_failures_total",
+            "Batches of auctions that could not be closed and were rescheduled");
+    private static final Histogram BATCH_TIMER = Metrics.instance().histogram("auction_close_batch_duration_seconds",
+            "Time to seal, pick the winners of and close one batch of auctions");
+
+    private final AuctionDao auctionDao;
+    private final BidEngine bidEngine;
+    private final long tickMillis;
+    private final int batchSize;
+
+    // Handed over to the closer thread, which alone touches the wheel
+    private final ConcurrentLinkedQueue<Scheduled> incoming = new ConcurrentLinkedQueue<>();
+    private TimerWheel wheel;
+    private boolean loaded;
+    private long nextLoadAttempt;
+    private volatile int scheduled;
+
+    private ScheduledExecutorService executor;
+
+    AuctionCloser(AuctionDao auctionDao, BidEngine bidEngine, long tickMillis, int batchSize) {
+        this.auctionDao = auctionDao;
+        this.bidEngine = bidEngine;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+    }
+
+    public static AuctionCloser instance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        wheel = new TimerWheel(tickMillis, System.currentTimeMillis());
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "auction-closer");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::tick, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Closes the auction at {@code endsAtMillis}. Safe to call from any thread; an end time in the past
+     * closes it on the next tick.
+     */
+    public void schedule(long productId, long endsAtMillis) {
+        incoming.add(new Scheduled(productId, endsAtMillis));
+    }
+
+    /**
+     * Open auctions waiting for their end time on this node.
+     */
+    public int scheduledCount() {
+        return scheduled;
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            if (!loaded && now >= nextLoadAttempt) {
+                loadOpenAuctions(now);
+            }
+            Scheduled s;
+            while ((s = incoming.poll()) != null) {
+                wheel.schedule(s.productId(), s.endsAtMillis());
+            }
+
+            List<Long> expired = new ArrayList<>();
+            wheel.advance(now, expired);
+            for (int from = 0; from < expired.size(); from += batchSize) {
+                close(expired.subList(from, Math.min(from + batchSize, expired.size())), now);
+            }
+            scheduled = wheel.size();
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task
+            LOG.log(Level.SEVERE, "Auction closer tick failed", e);
+        }
+    }
+
+    private void loadOpenAuctions(long now) {
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            AuctionDao.Deadline after = null;
+            List<AuctionDao.Deadline> page;
+            do {
+                page = auctionDao.findOpenDeadlines(after, LOAD_PAGE_SIZE);
+                for (AuctionDao.Deadline deadline : page) {
+                    wheel.schedule(deadline.productId(), deadline.endsAt().getTime());
+                }
+                count += page.size();
+                after = page.isEmpty() ? null : page.get(page.size() - 1);
+            } while (page.size() == LOAD_PAGE_SIZE);
+        } catch (RuntimeException e) {
+            // Auctions loaded so far stay scheduled; closing one twice is harmless
+            nextLoadAttempt = now + RETRY_DELAY_MS;
+            LOG.log(Level.WARNING, "Could not load open auctions; retrying in " + RETRY_DELAY_MS + " ms", e);
+            return;
+        }
+        loaded = true;
+        LOG.info(String.format("Auction closer scheduled %d open auction(s) in %d ms",
+                count, (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private void close(List<Long> productIds, long now) {
+        long start = System.nanoTime();
+        try {
+            bidEngine.seal(productIds);
+            CLOSED.add(auctionDao.closeAuctions(productIds).size());
+        } catch (RuntimeException e) {
+            FAILED.increment();
+            LOG.log(Level.WARNING, "Could not close " + productIds.size() + " auction(s); retrying in "
+                    + RETRY_DELAY_MS + " ms", e);
+            for (Long productId : productIds) {
+                wheel.schedule(productId, now + RETRY_DELAY_MS);
+            }
+        } finally {
+            BATCH_TIMER.recordSince(start);
+        }
+    }
+
+    private record Scheduled(long productId, long endsAtMillis) {}
+}
@@ -0,0 +1,68 @@
+package com.nettenz.ebay.auction;
+
+import com.nettenz.ebay.dao.BidDao;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Immutable snapshot of one product's auction. Replaced wholesale on every accepted bid,
+ * so readers never need a lock.
+ *
+ * @param highBidderMax the high bidder's hidden proxy maximum, never below {@code currentPrice};
+ *                      null when nobody has bid. Must not be shown to other users.
+ * @param endsAtMillis  when bidding ends, or {@link Long#MAX_VALUE} for an auction without an end
+ * @param closed        whether the auction closer has closed the auction
+ */
+public record AuctionState(
+        long productId,
+        long sellerId,
+        BigDecimal currentPrice,
+        Long highBidderId,
+        BigDecimal highBidderMax,
+        int bidCount,
+        long endsAtMillis,
+        boolean closed
+) {
+
+    static AuctionState from(BidDao.AuctionSummary summary) {
+        return new AuctionState(summary.productId(), summary.sellerId(), summary.currentPrice(),
+                summary.highBidderId(), maximum(summary.highBidderId(), summary.highBidderMax(), summary.currentPrice()),
+                summary.bidCount(), millis(summary.endsAt()), summary.closed());
+    }
+
+    /**
+     * True once the auction is closed or its end time has passed, whether or not the closer has run yet.
+     */
+    public boolean biddingEnded(long nowMillis) {
+        return closed || nowMillis >= endsAtMillis;
+    }
+
+    /**
+     * The auction after {@code bids} (in ascending order, possibly none), led by {@code highBidderId}
+     * with the given maximum.
+     */
+    AuctionState withBids(List<BidDao.NewBid> bids, long highBidderId, BigDecimal highBidderMax) {
+        BigDecimal price = bids.isEmpty() ? currentPrice : bids.get(bids.size() - 1).amount();
+        return new AuctionState(productId, sellerId, price, highBidderId, highBidderMax,
+                bidCount + bids.size(), endsAtMillis, closed);
+    }
+
+    AuctionState asClosed() {
+        return new AuctionState(productId, sellerId, currentPrice, highBidderId, highBidderMax,
+                bidCount, endsAtMillis, true);
+    }
+
+    // Rows written before proxy bidding have no maximum, and a repair that changes the high bidder clears it
+    private static BigDecimal maximum(Long highBidderId, BigDecimal max, BigDecimal currentPrice) {
+        if (highBidderId == null) {
+            return null;
+        }
+        return max != null && max.compareTo(currentPrice) > 0 ? max : currentPrice;
+    }
+
+    private static long millis(Timestamp endsAt) {
+        return endsAt != null ? endsAt.getTime() : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,302 @@
+package com.nettenz.ebay.auction;
+
+import com.nettenz.ebay.dao.BidDao;
+import com.nettenz.ebay.metrics.Counter;
+import com.nettenz.ebay.metrics.Metrics;
+import com.nettenz.ebay.util.Env;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process bid acceptance.
+ *
+ * <p>Keeps each product's current price, high bidder and the high bidder's hidden maximum in memory and
+ * resolves bids against it, so rejected bids never touch the database. Products are partitioned over a
+ * fixed set of lock stripes by id: all bids for one product are resolved and persisted under the same
+ * stripe lock, which gives strict per-product ordering, while bids on different products proceed in parallel.</p>
+ *
+ * <p>Every bid is a proxy bid up to the amount entered, resolved by the {@link ProxyBidding} rules at
+ * {@code BID_INCREMENT} above the competing maximum. Only the resulting visible bids are written, one
+ * write per bid: it either raises the high bidder's own maximum, or records one or two visible bids.</p>
+ *
+ * <p>The conditional update in {@link BidDao#placeBid} remains the final arbiter. If it rejects a bid
+ * the engine resolved (another node changed the auction first), the product is reloaded and the bid resolved
+ * once more; if that is rejected too, it is reported as too low.</p>
+ *
+ * <p>With {@code BID_WRITER_ASYNC=true}, accepted bids are instead handed to a group-commit {@link BidWriter}
+ * and the stripe lock is released before the write; {@link #placeBid} still only returns once the bid is
+ * durable. The batched update is guarded the same way, so a bid resolved against a state that never
+ * committed (an earlier batch failed, or another node changed the auction) is not written; the product is
+ * reloaded and the bid resolved once more, as in the synchronous path.</p>
+ *
+ * <p>Bids are refused from an auction's end time on, checked against the in-memory state like the price,
+ * so late bids never reach the database either.</p>
+ */
+public final class BidEngine {
+
+    private static final Logger LOG = Logger.getLogger(BidEngine.class.getName());
+
+    private static final long DURABLE_TIMEOUT_MS = 10_000;
+
+    private static final BidEngine INSTANCE = new BidEngine(
+            new BidDao(), Env.getInt("BID_ENGINE_STRIPES", 256),
+            Env.getBoolean("BID_WRITER_ASYNC", false),
+            new BigDecimal(Env.get("BID_INCREMENT", "1.00")));
+
+    private static final Counter[] OUTCOMES = new Counter[BidResult.Outcome.values().length];
+
+    static {
+        for (BidResult.Outcome outcome : BidResult.Outcome.values()) {
+            OUTCOMES[outcome.ordinal()] = Metrics.instance().counter("bids_total",
+                    "Bids placed, by outcome (accepted, raised maximum, outbid by a proxy, or the reason they were rejected)",
+                    "outcome", outcome.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private final BidDao bidDao;
+    private final BigDecimal increment;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<Long, AuctionState> states = new ConcurrentHashMap<>();
+    private final BidWriter writer; // null when bids are written synchronously
+
+    BidEngine(BidDao bidDao, int stripeCount, boolean asyncWrites, BigDecimal increment) {
+        this.bidDao = bidDao;
+        this.increment = increment;
+        int n = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1; // round up to a power of two
+        this.stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.writer = asyncWrites
+                ? new BidWriter(bidDao,
+                        Env.getInt("BID_WRITER_MAX_BATCH", 100),
+                        Env.getInt("BID_WRITER_MAX_DELAY_MS", 5),
+                        Env.getInt("BID_WRITER_QUEUE_CAPACITY", 10_000),
+                        this::invalidate)
+                : null;
+    }
+
+    public static BidEngine instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads the state of every open auction from the bid summary columns on {@code products}. Products
+     * that already have state (bids accepted while rebuilding) keep it.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        int loaded = 0;
+        for (BidDao.AuctionSummary summary : bidDao.findAuctionSummaries()) {
+            if (states.putIfAbsent(summary.productId(), AuctionState.from(summary)) == null) {
+                loaded++;
+            }
+        }
+        LOG.info(String.format("Bid engine rebuilt %d auction(s) in %d ms",
+                loaded, (System.nanoTime() - start) / 1_000_000));
+    }
+
+    /**
+     * Startup hook: a failed rebuild is not fatal because state is loaded lazily per product.
+     */
+    public void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Bid engine rebuild failed; auctions will be loaded on first bid", e);
+        }
+    }
+
+    /**
+     * Places a bid of up to {@code maximum} on the bidder's behalf.
+     */
+    public BidResult placeBid(long productId, long bidderId, BigDecimal maximum) {
+        BidResult result = decide(productId, bidderId, maximum, false);
+        OUTCOMES[result.outcome().ordinal()].increment();
+        return result;
+    }
+
+    private BidResult decide(long productId, long bidderId, BigDecimal maximum, boolean reloaded) {
+        ProxyBidding.Resolution resolution;
+        CompletableFuture<Void> durable;
+
+        ReentrantLock lock = stripeFor(productId);
+        lock.lock();
+        try {
+            AuctionState state = stateFor(productId);
+            if (state == null) {
+                return BidResult.of(BidResult.Outcome.NOT_FOUND, null);
+            }
+            if (state.biddingEnded(System.currentTimeMillis())) {
+                return BidResult.of(BidResult.Outcome.CLOSED, state);
+            }
+            if (state.sellerId() == bidderId) {
+                return BidResult.of(BidResult.Outcome.OWN_ITEM, state);
+            }
+
+            resolution = ProxyBidding.resolve(state, bidderId, maximum, increment);
+            if (resolution.outcome() == BidResult.Outcome.TOO_LOW) {
+                return BidResult.of(BidResult.Outcome.TOO_LOW, state);
+            }
+            AuctionState next = resolution.next();
+            BidDao.BidWrite write = new BidDao.BidWrite(productId,
+                    state.currentPrice(), state.highBidderId(), state.highBidderMax(), resolution.bids(),
+                    next.currentPrice(), next.highBidderId(), next.highBidderMax());
+
+            if (writer == null) {
+                if (!bidDao.placeBid(write)) {
+                    states.remove(productId);
+                    return reloaded
+                            ? BidResult.of(BidResult.Outcome.TOO_LOW, stateFor(productId))
+                            : decide(productId, bidderId, maximum, true); // the stripe lock is reentrant
+                }
+                states.put(productId, next);
+                return BidResult.of(resolution.outcome(), next);
+            }
+
+            durable = writer.submit(write);
+            if (!durable.isCompletedExceptionally()) {
+                states.put(productId, next);
+            }
+        } catch (RuntimeException e) {
+            // The in-memory state may no longer match the database; reload it on the next bid.
+            states.remove(productId);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+
+        if (!awaitDurable(durable)) {
+            // Rejected by the guarded batch update; the writer has already dropped the product's state
+            if (reloaded) {
+                throw new RuntimeException("Bid could not be saved: auction " + productId + " kept changing");
+            }
+            return decide(productId, bidderId, maximum, true);
+        }
+        return BidResult.of(resolution.outcome(), resolution.next());
+    }
+
+    /**
+     * Marks the given auctions closed and returns once every bid accepted for them beforehand is durable,
+     * so the winner can be read from the database. Called by the {@link AuctionCloser}; bids are already
+     * refused from the end time on, this only waits out the ones accepted just before it.
+     */
+    public void seal(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            ReentrantLock lock = stripeFor(productId);
+            lock.lock(); // a synchronous write holds the lock until it has committed
+            try {
+                states.computeIfPresent(productId, (id, state) -> state.asClosed());
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.barrier().get(DURABLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("Queued bids were not written before closing auctions", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for queued bids", e);
+        }
+    }
+
+    /**
+     * Lock-free read of a product's last known auction state, or null if it is not loaded.
+     */
+    public AuctionState peek(long productId) {
+        return states.get(productId);
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * Group-commit counters, or null when bids are written synchronously.
+     */
+    public BidWriter.Stats writerStats() {
+        return writer != null ? writer.stats() : null;
+    }
+
+    /**
+     * Flushes pending bids and stops the writer thread. Called when the web application is undeployed.
+     */
+    public void shutdown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return false if the writer rejected the bid because its auction had changed
+     */
+    private boolean awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.get(DURABLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConcurrentModificationException) {
+                return false;
+            }
+            throw new RuntimeException("Bid could not be saved", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Bid was not confirmed within " + DURABLE_TIMEOUT_MS + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for bid to be saved", e);
+        }
+    }
+
+    /**
+     * Drops the in-memory state of products whose bids failed to commit, so they are reloaded from the database.
+     */
+    private void invalidate(List<BidDao.BidWrite> failed) {
+        for (BidDao.BidWrite write : failed) {
+            ReentrantLock lock = stripeFor(write.productId());
+            lock.lock();
+            try {
+                states.remove(write.productId());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Must be called with the product's stripe lock held.
+     */
+    private AuctionState stateFor(long productId) {
+        AuctionState state = states.get(productId);
+        if (state == null) {
+            BidDao.AuctionSummary summary = bidDao.findAuctionSummary(productId);
+            if (summary == null) {
+                return null;
+            }
+            state = AuctionState.from(summary);
+            states.put(productId, state);
+        }
+        return state;
+    }
+
+    private ReentrantLock stripeFor(long productId) {
+        int h = Long.hashCode(productId);
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,35 @@
+package com.nettenz.ebay.auction;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of {@link BidEngine#placeBid}. {@code state} is the auction after the attempt
+ * (including any bids it produced), or null when the product does not exist.
+ */
+public record BidResult(Outcome outcome, AuctionState state) {
+
+    public enum Outcome {
+        /** The bidder is now the high bidder. */
+        ACCEPTED,
+        /** The high bidder raised their own maximum; the price did not move. */
+        RAISED,
+        /** Recorded, but the high bidder's hidden maximum answered it and still leads. */
+        OUTBID,
+        NOT_FOUND,
+        CLOSED,
+        OWN_ITEM,
+        TOO_LOW
+    }
+
+    public boolean accepted() {
+        return outcome == Outcome.ACCEPTED;
+    }
+
+    public BigDecimal currentPrice() {
+        return state != null ? state.currentPrice() : null;
+    }
+
+    static BidResult of(Outcome outcome, AuctionState state) {
+        return new BidResult(outcome, state);
+    }
+}
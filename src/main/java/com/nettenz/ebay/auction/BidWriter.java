@@ -0,0 +1,242 @@
+package com.nettenz.ebay.auction;
+
+import com.nettenz.ebay.dao.BidDao;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous group-commit writer for bids resolved by the bid engine.
+ *
+ * <p>A single writer thread drains the queue into batches and persists each batch with
+ * {@link BidDao#placeBids} in one transaction, so many bids share one commit (and one fsync).
+ * A batch is flushed as soon as it holds {@code maxBatchSize} bids or {@code maxDelayMs} after its
+ * first bid arrived, whichever comes first. Each submitted bid's future completes once its batch
+ * has committed. It fails if the batch failed, or with {@link java.util.ConcurrentModificationException}
+ * if the DAO rejected the bid because its auction had changed (for instance because an earlier batch the bid
+ * built on failed).</p>
+ */
+public final class BidWriter implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(BidWriter.class.getName());
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final BidDao bidDao;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Consumer<List<BidDao.BidWrite>> onFailure;
+    private final BlockingQueue<Pending> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder bidsWritten = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder rejectedWrites = new LongAdder();
+    private final LongAdder commitNanosTotal = new LongAdder();
+    private final AtomicLong commitNanosMax = new AtomicLong();
+    private final AtomicLong batchSizeMax = new AtomicLong();
+
+    /**
+     * @param onFailure called on the writer thread with the writes of a batch that could not be committed,
+     *                  and with the writes {@link BidDao#placeBids} rejected because their auction had changed
+     */
+    public BidWriter(BidDao bidDao, int maxBatchSize, long maxDelayMs, int queueCapacity,
+                     Consumer<List<BidDao.BidWrite>> onFailure) {
+        this.bidDao = bidDao;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.onFailure = onFailure;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, "bid-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a bid for the next batch. The future fails with {@link RejectedExecutionException}
+     * if the queue is full or the writer has been closed.
+     */
+    public CompletableFuture<Void> submit(BidDao.BidWrite write) {
+        return enqueue(new Pending(write, new CompletableFuture<>()));
+    }
+
+    /**
+     * Returns a future that completes once every bid submitted before this call has been committed
+     * (or its batch has failed). Fails like {@link #submit} if the barrier cannot be queued.
+     */
+    public CompletableFuture<Void> barrier() {
+        return enqueue(new Pending(null, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        if (!running) {
+            pending.done().completeExceptionally(new RejectedExecutionException("Bid writer has been closed"));
+        } else if (!queue.offer(pending)) {
+            pending.done().completeExceptionally(new RejectedExecutionException("Bid writer queue is full"));
+        } else if (!running && queue.remove(pending)) {
+            // close() ran between the check and the offer, and the writer thread may already have
+            // drained the queue for the last time. Whoever takes the entry out of the queue completes it:
+            // the writer thread, or this thread here.
+            pending.done().completeExceptionally(new RejectedExecutionException("Bid writer has been closed"));
+        }
+        return pending.done();
+    }
+
+    public Stats stats() {
+        long b = batches.sum();
+        long written = bidsWritten.sum();
+        return new Stats(
+                b,
+                written,
+                failedBatches.sum(),
+                rejectedWrites.sum(),
+                b == 0 ? 0 : (double) written / b,
+                batchSizeMax.get(),
+                b == 0 ? 0 : commitNanosTotal.sum() / 1_000_000.0 / b,
+                commitNanosMax.get() / 1_000_000.0,
+                queue.size());
+    }
+
+    /**
+     * Stops accepting bids, flushes what is queued and waits for the writer thread to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (true) {
+                Pending first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!running) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        RejectedExecutionException closed = new RejectedExecutionException("Bid writer has been closed");
+        batch.forEach(p -> p.done().completeExceptionally(closed));
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            left.done().completeExceptionally(closed);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<BidDao.BidWrite> writes = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            if (p.write() != null) {
+                writes.add(p.write());
+            }
+        }
+        if (writes.isEmpty()) {
+            batch.forEach(p -> p.done().complete(null)); // only barriers
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean[] applied;
+        try {
+            applied = bidDao.placeBids(writes);
+        } catch (RuntimeException e) {
+            failedBatches.increment();
+            LOG.log(Level.SEVERE, "Failed to commit batch of " + writes.size() + " bid(s)", e);
+            try {
+                onFailure.accept(writes);
+            } finally {
+                for (Pending p : batch) {
+                    if (p.write() != null) {
+                        p.done().completeExceptionally(e);
+                    } else {
+                        p.done().complete(null);
+                    }
+                }
+            }
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<BidDao.BidWrite> rejected = new ArrayList<>();
+        for (int i = 0; i < applied.length; i++) {
+            if (!applied[i]) {
+                rejected.add(writes.get(i));
+            }
+        }
+        batches.increment();
+        bidsWritten.add(writes.size() - rejected.size());
+        rejectedWrites.add(rejected.size());
+        commitNanosTotal.add(elapsed);
+        commitNanosMax.accumulateAndGet(elapsed, Math::max);
+        batchSizeMax.accumulateAndGet(writes.size(), Math::max);
+
+        try {
+            if (!rejected.isEmpty()) {
+                onFailure.accept(rejected);
+            }
+        } finally {
+            int i = 0;
+            for (Pending p : batch) {
+                if (p.write() != null && !applied[i++]) {
+                    p.done().completeExceptionally(new ConcurrentModificationException(
+                            "Auction " + p.write().productId() + " changed before the bid was written"));
+                } else {
+                    p.done().complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param write null for a {@link #barrier()}
+     */
+    private record Pending(BidDao.BidWrite write, CompletableFuture<Void> done) {}
+
+    public record Stats(
+            long batches,
+            long bidsWritten,
+            long failedBatches,
+            long rejectedWrites,
+            double avgBatchSize,
+            long maxBatchSize,
+            double avgCommitMillis,
+            double maxCommitMillis,
+            int queueDepth
+    ) {}
+}
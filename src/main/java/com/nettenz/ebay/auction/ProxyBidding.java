@@ -0,0 +1,80 @@
+package com.nettenz.ebay.auction;
+
+import com.nettenz.ebay.dao.BidDao;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Proxy (automatic maximum) bidding rules.
+ *
+ * <p>Every bid states the most the bidder is willing to pay. The engine then bids on their behalf only as
+ * far as it takes to lead: one increment above the competing maximum, or the whole maximum if that is less.
+ * On equal maximums the earlier one wins. A new maximum is settled against the high bidder's as soon as it
+ * arrives, so the high bidder's is the only one still in play: resolving a bid is constant time, and a whole
+ * bidding war between two proxies comes down to at most two visible bids, the loser's maximum and the
+ * leader's answer to it.</p>
+ *
+ * <p>Visible bids are produced in strictly ascending order, so the last one is always the high bidder's
+ * and "highest amount, earliest bid" in the {@code bids} table still names the leader.</p>
+ */
+final class ProxyBidding {
+
+    private ProxyBidding() {
+    }
+
+    /**
+     * Resolves {@code bidderId}'s maximum against {@code state}, which must be open and not the bidder's own
+     * item. Does not change {@code state}.
+     */
+    static Resolution resolve(AuctionState state, long bidderId, BigDecimal maximum, BigDecimal increment) {
+        long productId = state.productId();
+        BigDecimal price = state.currentPrice();
+        Long leader = state.highBidderId();
+        BigDecimal leaderMax = state.highBidderMax();
+
+        if (leader != null && leader == bidderId) {
+            // The high bidder can only raise their own maximum; the price does not move
+            if (maximum.compareTo(leaderMax) <= 0) {
+                return Resolution.rejected(state);
+            }
+            return new Resolution(BidResult.Outcome.RAISED, state.withBids(List.of(), bidderId, maximum), List.of());
+        }
+        if (maximum.compareTo(price) <= 0) {
+            return Resolution.rejected(state);
+        }
+
+        if (leader == null || maximum.compareTo(leaderMax) > 0) {
+            // The challenger takes the lead. The previous leader's proxy is used up to its maximum first.
+            List<BidDao.NewBid> bids;
+            if (leader != null && leaderMax.compareTo(price) > 0) {
+                bids = List.of(
+                        new BidDao.NewBid(productId, leader, leaderMax),
+                        new BidDao.NewBid(productId, bidderId, maximum.min(leaderMax.add(increment))));
+            } else {
+                bids = List.of(new BidDao.NewBid(productId, bidderId, maximum.min(price.add(increment))));
+            }
+            return new Resolution(BidResult.Outcome.ACCEPTED, state.withBids(bids, bidderId, maximum), bids);
+        }
+
+        // price < maximum <= leaderMax: the leader's proxy answers. On a tie the leader's bid alone is
+        // recorded at that amount, since an equal bid placed later could never win.
+        List<BidDao.NewBid> bids = maximum.compareTo(leaderMax) == 0
+                ? List.of(new BidDao.NewBid(productId, leader, maximum))
+                : List.of(
+                        new BidDao.NewBid(productId, bidderId, maximum),
+                        new BidDao.NewBid(productId, leader, leaderMax.min(maximum.add(increment))));
+        return new Resolution(BidResult.Outcome.OUTBID, state.withBids(bids, leader, leaderMax), bids);
+    }
+
+    /**
+     * @param next the auction after the bid; {@code state} itself when nothing changed
+     * @param bids the visible bids to record, in order
+     */
+    record Resolution(BidResult.Outcome outcome, AuctionState next, List<BidDao.NewBid> bids) {
+
+        static Resolution rejected(AuctionState state) {
+            return new Resolution(BidResult.Outcome.TOO_LOW, state, List.of());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nettenz.ebay.auction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of product ids keyed by deadline, advanced by a single thread.
+ *
+ * <p>Time is divided into ticks of {@code tickMillis}. Level 0 has one slot per tick for the next 64 ticks,
+ * level 1 one slot per 64 ticks for the next 64², and so on; a deadline goes into the lowest level whose
+ * span covers it. Whenever the current tick crosses a slot boundary of a higher level, that slot's
+ * entries are redistributed into the levels below. Scheduling and expiring are O(1) and each entry is
+ * moved at most once per level, however many auctions are pending. Deadlines beyond the top level's
+ * span wait in its furthest slot and are placed again when it comes round.</p>
+ *
+ * <p>An entry never expires before its deadline: it fires on the first tick boundary at or after it.
+ * Not thread-safe.</p>
+ */
+final class TimerWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5; // 64^5 ticks: about 3.4 years at 100 ms per tick
+
+    private final long tickMillis;
+    private final List<Entry>[][] wheels;
+    private final List<Long> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.wheels = new List[LEVELS][SLOTS];
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    void schedule(long productId, long deadlineMillis) {
+        size++;
+        place(new Entry(productId, Math.ceilDiv(deadlineMillis, tickMillis)));
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMillis}, adding the ids of every entry whose deadline has
+     * been reached to {@code expired}. Does nothing if the clock went backwards.
+     */
+    void advance(long nowMillis, List<Long> expired) {
+        if (!overdue.isEmpty()) {
+            expired.addAll(overdue);
+            size -= overdue.size();
+            overdue.clear();
+        }
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < nowTick) {
+            currentTick++;
+            // Highest level first, so entries it hands down can still cascade through the lower ones
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    List<Entry> slot = take(level, slotIndex(currentTick, level));
+                    if (slot != null) {
+                        slot.forEach(this::place);
+                    }
+                }
+            }
+            List<Entry> due = take(0, slotIndex(currentTick, 0));
+            if (due != null) {
+                for (Entry e : due) {
+                    expired.add(e.productId());
+                }
+                size -= due.size();
+            }
+            expired.addAll(overdue);
+            size -= overdue.size();
+            overdue.clear();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.deadlineTick() - currentTick;
+        if (delta <= 0) {
+            overdue.add(entry.productId());
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                add(level, slotIndex(entry.deadlineTick(), level), entry);
+                return;
+            }
+        }
+        // Beyond the top level's span: park it in the furthest slot and place it again from there
+        long parkedTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        add(LEVELS - 1, slotIndex(parkedTick, LEVELS - 1), entry);
+    }
+
+    private void add(int level, int index, Entry entry) {
+        List<Entry> slot = wheels[level][index];
+        if (slot == null) {
+            slot = new ArrayList<>();
+            wheels[level][index] = slot;
+        }
+        slot.add(entry);
+    }
+
+    private List<Entry> take(int level, int index) {
+        List<Entry> slot = wheels[level][index];
+        wheels[level][index] = null;
+        return slot;
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+    }
+
+    private record Entry(long productId, long deadlineTick) {}
+}
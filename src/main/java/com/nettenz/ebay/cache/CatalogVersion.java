@@ -0,0 +1,31 @@
+package com.nettenz.ebay.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts writes to anything shown on catalog pages (products, bids, departments) on this node.
+ *
+ * <p>Bumped by the DAOs after each committed write. Anything derived from catalog data can remember
+ * the version it was built at and treat itself as stale once the version moves on.</p>
+ */
+public final class CatalogVersion {
+
+    private static final CatalogVersion INSTANCE = new CatalogVersion();
+
+    // Starts at the clock so that versions handed out before a restart are not reused
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    CatalogVersion() {}
+
+    public static CatalogVersion instance() {
+        return INSTANCE;
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public void changed() {
+        version.incrementAndGet();
+    }
+}
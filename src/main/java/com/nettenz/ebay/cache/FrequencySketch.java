@@ -0,0 +1,83 @@
+package com.nettenz.ebay.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate access-frequency counter (count-min sketch, 4 rows of 4-bit-saturating counters).
+ *
+ * <p>All counters are halved after about {@code sampleSize} increments, so the estimate reflects recent
+ * popularity rather than all-time totals. Increments are lock-free; an occasionally lost increment
+ * under contention only makes the estimate slightly low, which is harmless for admission decisions.</p>
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int AGING_CHECK_MASK = 63;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final AtomicIntegerArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final LongAdder additions = new LongAdder();
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, expectedEntries - 1)) << 1;
+        this.table = new AtomicIntegerArray(width * DEPTH);
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(16, expectedEntries);
+    }
+
+    void increment(Object key) {
+        int h = spread(key.hashCode());
+        for (int row = 0; row < DEPTH; row++) {
+            int i = index(h, row);
+            int v = table.get(i);
+            if (v < MAX_COUNT) {
+                table.compareAndSet(i, v, v + 1);
+            }
+        }
+        additions.increment();
+        // Summing walks every cell of the adder, so only a random 1 in 64 increments checks whether to age;
+        // the counters are then halved a few dozen increments late on average, which does not matter.
+        if ((ThreadLocalRandom.current().nextInt() & AGING_CHECK_MASK) == 0 && additions.sum() >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int h = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table.get(index(h, row)));
+        }
+        return min;
+    }
+
+    private synchronized void reset() {
+        if (additions.sum() < sampleSize) {
+            return; // another thread already aged the counters
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, table.get(i) >>> 1);
+        }
+        additions.reset();
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 32;
+        return row * (mask + 1) + ((int) h & mask);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,98 @@
+package com.nettenz.ebay.cache;
+
+import com.nettenz.ebay.dao.BidDao;
+import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.util.Env;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of product details and recent bid history for the product pages.
+ *
+ * <p>Kept current by {@link BidDao}: a committed bid drops the cached product and its history, so the next
+ * read loads the new price and bid count. (Applying the bid to the cached copy instead could count it twice,
+ * on top of a load that already read the committed row.) {@link ProductDao} drops a product whose other
+ * columns change.
+ * Product creation needs no hook because lookups that found nothing are never cached.</p>
+ */
+public final class ProductCache {
+
+    private static final ProductCache INSTANCE = new ProductCache(
+            Env.getInt("PRODUCT_CACHE_SIZE", 10_000),
+            Env.getInt("BID_HISTORY_CACHE_SIZE", 2_000),
+            Env.getLong("PRODUCT_CACHE_TTL_MS", 30_000));
+
+    private final ProductDao productDao = new ProductDao();
+    private final BidDao bidDao = new BidDao();
+    private final TinyLfuCache<Long, ProductDao.ProductDto> products;
+    private final TinyLfuCache<Long, List<BidDao.BidDto>> bidHistory;
+
+    ProductCache(int productSize, int historySize, long ttlMs) {
+        this.products = new TinyLfuCache<>(productSize, ttlMs, TimeUnit.MILLISECONDS);
+        this.bidHistory = new TinyLfuCache<>(historySize, ttlMs, TimeUnit.MILLISECONDS);
+    }
+
+    public static ProductCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the product, or null if it does not exist
+     */
+    public ProductDao.ProductDto product(long productId) {
+        return products.get(productId, productDao::findById);
+    }
+
+    /**
+     * Looks up several products at once; the ones not cached are loaded with a single query.
+     *
+     * @return the products that exist, by id
+     */
+    public Map<Long, ProductDao.ProductDto> products(Collection<Long> productIds) {
+        return products.getAll(productIds, productDao::findByIds);
+    }
+
+    /**
+     * @return the most recent bids, newest first (unmodifiable)
+     */
+    public List<BidDao.BidDto> bidHistory(long productId) {
+        return bidHistory.get(productId, id -> List.copyOf(bidDao.getBidHistory(id)));
+    }
+
+    /**
+     * @return the product if it is cached, otherwise null without loading it
+     */
+    public ProductDao.ProductDto cachedProduct(long productId) {
+        return products.peek(productId);
+    }
+
+    /**
+     * @return the bid history if it is cached, otherwise null without loading it
+     */
+    public List<BidDao.BidDto> cachedBidHistory(long productId) {
+        return bidHistory.peek(productId);
+    }
+
+    /**
+     * Must be called after the bid has committed, so a load racing with it either reads the bid or is discarded.
+     */
+    public void onBidPlaced(long productId) {
+        products.invalidate(productId);
+        bidHistory.invalidate(productId);
+    }
+
+    public void onProductChanged(long productId) {
+        products.invalidate(productId);
+    }
+
+    public TinyLfuCache.Stats productStats() {
+        return products.stats();
+    }
+
+    public TinyLfuCache.Stats bidHistoryStats() {
+        return bidHistory.stats();
+    }
+}
@@ -0,0 +1,50 @@
+package com.nettenz.ebay.cache;
+
+import com.nettenz.ebay.util.Env;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendered bodies of public catalog pages, for {@code ResponseCacheFilter}.
+ *
+ * <p>Each entry records the {@link CatalogVersion} it was rendered at and is only served while that is
+ * still current, so a product or bid written on this node takes effect on the next request. Writes made
+ * on other nodes are picked up when the entry expires after {@code RESPONSE_CACHE_TTL_MS}.</p>
+ */
+public final class ResponseCache {
+
+    private static final ResponseCache INSTANCE = new ResponseCache(
+            Env.getInt("RESPONSE_CACHE_SIZE", 1_000),
+            Env.getLong("RESPONSE_CACHE_TTL_MS", 5_000));
+
+    private final TinyLfuCache<String, Page> pages;
+
+    ResponseCache(int size, long ttlMs) {
+        this.pages = new TinyLfuCache<>(size, ttlMs, TimeUnit.MILLISECONDS);
+    }
+
+    public static ResponseCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the page if cached and rendered at {@code version}, otherwise null
+     */
+    public Page get(String key, long version) {
+        Page page = pages.getIfPresent(key);
+        return page != null && page.version() == version ? page : null;
+    }
+
+    public void put(String key, Page page) {
+        pages.put(key, page);
+    }
+
+    public TinyLfuCache.Stats stats() {
+        return pages.stats();
+    }
+
+    /**
+     * @param etag strong entity tag, including the quotes
+     */
+    public record Page(long version, String etag, String contentType, byte[] body) {}
+}
@@ -0,0 +1,245 @@
+package com.nettenz.ebay.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded, read-through in-process cache with TinyLFU admission.
+ *
+ * <p>Reads are lock-free. When the cache is full, a new entry is only admitted if the frequency
+ * sketch says it is requested more often than the eviction candidate (the oldest entry); otherwise
+ * the candidate stays and is moved to the back of the queue. One-off lookups therefore cannot flush
+ * the hot set the way they would in a plain LRU. Entries expire {@code ttl} after they were loaded,
+ * which bounds staleness from writes made on other nodes.</p>
+ */
+public final class TinyLfuCache<K, V> {
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<K, Entry<V>> map;
+    private final FrequencySketch sketch;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LinkedHashMap<K, Boolean> order = new LinkedHashMap<>(); // guarded by evictionLock, oldest first
+
+    // Bumped by every invalidation so a load that raced with a write is not cached.
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public TinyLfuCache(int maximumSize, long ttl, TimeUnit unit) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.map = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the cached value, or loads it with {@code loader} on a miss. Null results are not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        sketch.increment(key);
+        Entry<V> e = map.get(key);
+        if (e != null && !e.isExpired(System.nanoTime(), ttlNanos)) {
+            hits.increment();
+            return e.value;
+        }
+        misses.increment();
+
+        long generation = generations.get(stripe(key));
+        long start = System.nanoTime();
+        V value = loader.apply(key);
+        loadNanos.add(System.nanoTime() - start);
+
+        if (value != null) {
+            admit(key, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached values of {@code keys}, loading all misses with one call to {@code loader}, which
+     * returns the values it found by key. Keys without a value are absent from the result and not cached.
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, Function<? super List<K>, ? extends Map<K, ? extends V>> loader) {
+        Map<K, V> result = new HashMap<>(keys.size() * 2);
+        List<K> missing = new ArrayList<>();
+        long[] missingGenerations = new long[keys.size()];
+        long now = System.nanoTime();
+        for (K key : keys) {
+            sketch.increment(key);
+            Entry<V> e = map.get(key);
+            if (e != null && !e.isExpired(now, ttlNanos)) {
+                hits.increment();
+                result.put(key, e.value);
+            } else if (!result.containsKey(key) && !missing.contains(key)) {
+                missingGenerations[missing.size()] = generations.get(stripe(key));
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        misses.add(missing.size());
+
+        long start = System.nanoTime();
+        Map<K, ? extends V> loaded = loader.apply(missing);
+        loadNanos.add(System.nanoTime() - start);
+
+        for (int i = 0; i < missing.size(); i++) {
+            K key = missing.get(i);
+            V value = loaded.get(key);
+            if (value != null) {
+                result.put(key, value);
+                admit(key, value, missingGenerations[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached value, or null on a miss, for callers that cannot express loading as a function.
+     * Pair with {@link #put}.
+     */
+    public V getIfPresent(K key) {
+        sketch.increment(key);
+        Entry<V> e = map.get(key);
+        if (e != null && !e.isExpired(System.nanoTime(), ttlNanos)) {
+            hits.increment();
+            return e.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Like {@link #getIfPresent}, but a miss is not counted, for callers that follow a miss with {@link #get}.
+     */
+    public V peek(K key) {
+        Entry<V> e = map.get(key);
+        if (e != null && !e.isExpired(System.nanoTime(), ttlNanos)) {
+            sketch.increment(key);
+            hits.increment();
+            return e.value;
+        }
+        return null;
+    }
+
+    /**
+     * Offers a value computed after a {@link #getIfPresent} miss. Subject to the same admission policy as
+     * loaded values.
+     */
+    public void put(K key, V value) {
+        admit(key, value, generations.get(stripe(key)));
+    }
+
+    public void invalidate(K key) {
+        generations.incrementAndGet(stripe(key));
+        evictionLock.lock();
+        try {
+            map.remove(key);
+            order.remove(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return new Stats(
+                map.size(),
+                maximumSize,
+                h,
+                m,
+                h + m == 0 ? 0 : (double) h / (h + m),
+                evictions.sum(),
+                rejections.sum(),
+                m == 0 ? 0 : loadNanos.sum() / 1_000_000.0 / m);
+    }
+
+    private void admit(K key, V value, long generation) {
+        evictionLock.lock();
+        try {
+            if (generations.get(stripe(key)) != generation) {
+                return; // written while we were loading; our value may already be stale
+            }
+            long now = System.nanoTime();
+            if (map.containsKey(key)) {
+                map.put(key, new Entry<>(value, now));
+                return;
+            }
+            if (map.size() >= maximumSize && !makeRoomFor(key, now)) {
+                rejections.increment();
+                return;
+            }
+            order.put(key, Boolean.TRUE);
+            map.put(key, new Entry<>(value, now));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the oldest entry if it has expired or is less popular than {@code candidate}.
+     * Must be called with the eviction lock held.
+     */
+    private boolean makeRoomFor(K candidate, long now) {
+        Iterator<K> it = order.keySet().iterator();
+        if (!it.hasNext()) {
+            return true;
+        }
+        K victim = it.next();
+        Entry<V> victimEntry = map.get(victim);
+        boolean evict = victimEntry == null
+                || victimEntry.isExpired(now, ttlNanos)
+                || sketch.frequency(candidate) > sketch.frequency(victim);
+        it.remove();
+        if (evict) {
+            map.remove(victim);
+            evictions.increment();
+            return true;
+        }
+        order.put(victim, Boolean.TRUE); // second chance: move to the back of the queue
+        return false;
+    }
+
+    private int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+        boolean isExpired(long now, long ttlNanos) {
+            return now - loadedAt > ttlNanos;
+        }
+    }
+
+    public record Stats(
+            int size,
+            int maximumSize,
+            long hits,
+            long misses,
+            double hitRatio,
+            long evictions,
+            long rejections,
+            double avgLoadMillis
+    ) {}
+}
@@ -1,6 +1,7 @@
 package com.nettenz.ebay.dao;
 
 import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.metrics.Histogram;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -11,10 +12,13 @@ import java.util.List;
 
 public class AdminDao {
 
+    private static final Histogram FIND_ALL_USERS_TIMER = DaoMetrics.timer("AdminDao", "findAllUsers");
+
     public List<UserDto> findAllUsers() {
         List<UserDto> list = new ArrayList<>();
         String sql = "SELECT user_id, username, email, role, created_at FROM users ORDER BY created_at DESC";
         
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
@@ -30,6 +34,8 @@ public class AdminDao {
             }
         } catch (SQLException e) {
             throw new RuntimeException("DB Error fetching users", e);
+        } finally {
+            FIND_ALL_USERS_TIMER.recordSince(start);
         }
         return list;
     }
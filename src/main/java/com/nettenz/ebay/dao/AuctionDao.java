@@ -0,0 +1,189 @@
+package com.nettenz.ebay.dao;
+
+import com.nettenz.ebay.cache.CatalogVersion;
+import com.nettenz.ebay.cache.ProductCache;
+import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.metrics.Histogram;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Auction deadlines and closing, for the {@link com.nettenz.ebay.auction.AuctionCloser}.
+ */
+public class AuctionDao {
+
+    private static final Histogram FIND_OPEN_DEADLINES_TIMER = DaoMetrics.timer("AuctionDao", "findOpenDeadlines");
+    private static final Histogram CLOSE_AUCTIONS_TIMER = DaoMetrics.timer("AuctionDao", "closeAuctions");
+
+    /**
+     * Returns up to {@code limit} auctions that have an end time and are not closed yet, in deadline order,
+     * starting strictly after {@code after} (or from the earliest when {@code after} is null).
+     *
+     * <p>Keyset pagination on {@code idx_products_closing}, which InnoDB extends with the primary key,
+     * so only open auctions are read.</p>
+     */
+    public List<Deadline> findOpenDeadlines(Deadline after, int limit) {
+        final String firstPageSql = """
+            SELECT product_id, ends_at
+            FROM products
+            WHERE closed_at IS NULL AND ends_at IS NOT NULL
+            ORDER BY ends_at, product_id
+            LIMIT ?
+        """;
+        final String nextPageSql = """
+            SELECT product_id, ends_at
+            FROM products
+            WHERE closed_at IS NULL
+              AND (ends_at > ? OR (ends_at = ? AND product_id > ?))
+            ORDER BY ends_at, product_id
+            LIMIT ?
+        """;
+
+        List<Deadline> list = new ArrayList<>(limit);
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(after == null ? firstPageSql : nextPageSql)) {
+
+            int i = 1;
+            if (after != null) {
+                ps.setTimestamp(i++, after.endsAt());
+                ps.setTimestamp(i++, after.endsAt());
+                ps.setLong(i++, after.productId());
+            }
+            ps.setInt(i, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new Deadline(rs.getLong("product_id"), rs.getTimestamp("ends_at")));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in AuctionDao.findOpenDeadlines", e);
+        } finally {
+            FIND_OPEN_DEADLINES_TIMER.recordSince(start);
+        }
+        return list;
+    }
+
+    /**
+     * Closes the given auctions, whose end time has passed, in one transaction: locks the
+     * product rows, picks each winner from {@code bids} (highest amount, earliest bid on a tie) in one query,
+     * and stamps {@code closed_at} and {@code winner_user_id} with one JDBC batch.
+     *
+     * <p>Locking the rows first waits out bids being written for these products, so the winner query sees
+     * them. Auctions that are already closed (by another node) are skipped.</p>
+     *
+     * @return the auctions this call closed
+     */
+    public List<ClosedAuction> closeAuctions(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        String in = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        final String lockSql = """
+            SELECT product_id
+            FROM products
+            WHERE product_id IN (%s) AND closed_at IS NULL
+            FOR UPDATE
+        """.formatted(in);
+        final String winnersSql = """
+            SELECT b.product_id, b.bidder_user_id, b.amount
+            FROM bids b
+            JOIN (
+                SELECT product_id, MAX(amount) as max_amount
+                FROM bids
+                WHERE product_id IN (%s)
+                GROUP BY product_id
+            ) m ON m.product_id = b.product_id AND m.max_amount = b.amount
+            ORDER BY b.product_id, b.bid_id
+        """.formatted(in);
+        final String closeSql = """
+            UPDATE products
+            SET closed_at = CURRENT_TIMESTAMP, winner_user_id = ?
+            WHERE product_id = ? AND closed_at IS NULL
+        """;
+
+        List<ClosedAuction> closed = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement lock = c.prepareStatement(lockSql);
+                 PreparedStatement winners = c.prepareStatement(winnersSql);
+                 PreparedStatement close = c.prepareStatement(closeSql)) {
+
+                int i = 1;
+                for (Long id : productIds) {
+                    lock.setLong(i++, id);
+                }
+                List<Long> due = new ArrayList<>(productIds.size());
+                try (ResultSet rs = lock.executeQuery()) {
+                    while (rs.next()) {
+                        due.add(rs.getLong(1));
+                    }
+                }
+                if (due.isEmpty()) {
+                    c.rollback();
+                    return List.of();
+                }
+
+                i = 1;
+                for (Long id : productIds) {
+                    winners.setLong(i++, id);
+                }
+                Map<Long, ClosedAuction> byProduct = new HashMap<>();
+                try (ResultSet rs = winners.executeQuery()) {
+                    while (rs.next()) {
+                        long productId = rs.getLong("product_id");
+                        // Rows are in bid order, so the first one per product is the earliest top bid
+                        byProduct.putIfAbsent(productId, new ClosedAuction(
+                                productId, rs.getLong("bidder_user_id"), rs.getBigDecimal("amount")));
+                    }
+                }
+
+                for (Long id : due) {
+                    ClosedAuction auction = byProduct.getOrDefault(id, new ClosedAuction(id, null, null));
+                    if (auction.winnerId() != null) {
+                        close.setLong(1, auction.winnerId());
+                    } else {
+                        close.setNull(1, Types.BIGINT);
+                    }
+                    close.setLong(2, id);
+                    close.addBatch();
+                    closed.add(auction);
+                }
+                close.executeBatch();
+
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in AuctionDao.closeAuctions", e);
+        } finally {
+            CLOSE_AUCTIONS_TIMER.recordSince(start);
+        }
+
+        for (ClosedAuction auction : closed) {
+            ProductCache.instance().onProductChanged(auction.productId());
+        }
+        CatalogVersion.instance().changed();
+        return closed;
+    }
+
+    public record Deadline(long productId, Timestamp endsAt) {}
+
+    /**
+     * @param winnerId    the highest bidder, or null if nobody bid
+     * @param finalPrice  the winning bid, or null if nobody bid
+     */
+    public record ClosedAuction(long productId, Long winnerId, BigDecimal finalPrice) {}
+}
@@ -1,7 +1,13 @@
 package com.nettenz.ebay.dao;
 
+import com.nettenz.ebay.cache.CatalogVersion;
+import com.nettenz.ebay.cache.ProductCache;
 import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.stats.DashboardCounters;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
@@ -10,23 +16,174 @@ import java.util.Optional;
 
 public class BidDao {
 
-    public void placeBid(Long productId, Long bidderId, BigDecimal amount) {
-        final String sql = """
+    private static final Histogram PLACE_BID_TIMER = DaoMetrics.timer("BidDao", "placeBid");
+    private static final Histogram PLACE_BIDS_TIMER = DaoMetrics.timer("BidDao", "placeBids");
+    private static final Histogram GET_HIGHEST_BID_TIMER = DaoMetrics.timer("BidDao", "getHighestBid");
+    private static final Histogram GET_BID_HISTORY_TIMER = DaoMetrics.timer("BidDao", "getBidHistory");
+    private static final Histogram STREAM_HISTORY_TIMER = DaoMetrics.timer("BidDao", "streamHistory");
+    private static final Histogram GET_BID_COUNT_TIMER = DaoMetrics.timer("BidDao", "getBidCount");
+    private static final Histogram FIND_AUCTION_SUMMARIES_TIMER = DaoMetrics.timer("BidDao", "findAuctionSummaries");
+    private static final Histogram FIND_AUCTION_SUMMARY_TIMER = DaoMetrics.timer("BidDao", "findAuctionSummary");
+
+    /**
+     * Records the visible bids the bid engine produced for one bid and updates the product's denormalized
+     * {@code current_price}, {@code bid_count}, {@code high_bidder_user_id} and {@code high_bidder_max}
+     * in the same transaction.
+     *
+     * <p>The product update only succeeds while the current price, high bidder and high bidder's maximum
+     * are still the ones the engine resolved against (a raised maximum moves neither of the others), and
+     * it locks the product row, so concurrent bidders on the same item are serialized. A missing or stale
+     * maximum counts as the current price, as it does in the engine.</p>
+     *
+     * @return {@code false} if the auction had changed in the meantime; nothing is written
+     */
+    public boolean placeBid(BidWrite write) {
+        final String updateSql = """
+            UPDATE products
+            SET current_price = ?, bid_count = bid_count + ?, high_bidder_user_id = ?, high_bidder_max = ?
+            WHERE product_id = ? AND current_price = ? AND %s
+        """.formatted(write.previousHighBidderId() == null
+                ? "high_bidder_user_id IS NULL"
+                : "high_bidder_user_id = ? AND GREATEST(COALESCE(high_bidder_max, current_price), current_price) = ?");
+        final String insertSql = """
             INSERT INTO bids (product_id, bidder_user_id, amount)
             VALUES (?, ?, ?)
         """;
 
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement update = c.prepareStatement(updateSql);
+                 PreparedStatement insert = c.prepareStatement(insertSql)) {
 
-            ps.setLong(1, productId);
-            ps.setLong(2, bidderId);
-            ps.setBigDecimal(3, amount);
-            ps.executeUpdate();
+                update.setBigDecimal(1, write.currentPrice());
+                update.setInt(2, write.bids().size());
+                update.setLong(3, write.highBidderId());
+                update.setBigDecimal(4, write.highBidderMax());
+                update.setLong(5, write.productId());
+                update.setBigDecimal(6, write.previousPrice());
+                if (write.previousHighBidderId() != null) {
+                    update.setLong(7, write.previousHighBidderId());
+                    update.setBigDecimal(8, write.previousHighBidderMax());
+                }
+                if (update.executeUpdate() == 0) {
+                    c.rollback();
+                    return false;
+                }
+
+                if (!write.bids().isEmpty()) {
+                    addBids(insert, write.bids());
+                    insert.executeBatch();
+                }
+
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in BidDao.placeBid", e);
+        } finally {
+            PLACE_BID_TIMER.recordSince(start);
         }
+
+        bidsCommitted(write.bids());
+        return true;
+    }
+
+    /**
+     * Group-commit path: applies a batch of writes already resolved by the bid engine, all in one transaction.
+     *
+     * <p>Each write updates its product's bid summary under the same guard as {@link #placeBid}, in queue
+     * order, so a write only applies on top of the state it was resolved against: normally the previous write
+     * for the product in this or an earlier batch. If that write never committed (its batch failed), the
+     * writes resolved after it no longer match and are rejected too, until the engine has reloaded the
+     * product. The bids of the applied writes are then inserted as one JDBC batch, which the driver rewrites
+     * into a multi-row INSERT ({@code rewriteBatchedStatements=true}).</p>
+     *
+     * @return for each write, whether it was applied; a rejected write has written nothing
+     */
+    public boolean[] placeBids(List<BidWrite> writes) {
+        final String updateSql = """
+            UPDATE products
+            SET current_price = ?, bid_count = bid_count + ?, high_bidder_user_id = ?, high_bidder_max = ?
+            WHERE product_id = ? AND current_price = ? AND COALESCE(high_bidder_user_id, 0) = ?
+              AND GREATEST(COALESCE(high_bidder_max, current_price), current_price) = ?
+        """;
+        final String insertSql = """
+            INSERT INTO bids (product_id, bidder_user_id, amount)
+            VALUES (?, ?, ?)
+        """;
+
+        boolean[] applied = new boolean[writes.size()];
+        List<NewBid> bids = new ArrayList<>(writes.size());
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement update = c.prepareStatement(updateSql);
+                 PreparedStatement insert = c.prepareStatement(insertSql)) {
+
+                for (BidWrite write : writes) {
+                    // With no high bidder there is no maximum either; user ids start at 1
+                    Long previousLeader = write.previousHighBidderId();
+                    update.setBigDecimal(1, write.currentPrice());
+                    update.setInt(2, write.bids().size());
+                    update.setLong(3, write.highBidderId());
+                    update.setBigDecimal(4, write.highBidderMax());
+                    update.setLong(5, write.productId());
+                    update.setBigDecimal(6, write.previousPrice());
+                    update.setLong(7, previousLeader != null ? previousLeader : 0);
+                    update.setBigDecimal(8, previousLeader != null ? write.previousHighBidderMax() : write.previousPrice());
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+
+                for (int i = 0; i < applied.length; i++) {
+                    applied[i] = counts[i] != 0;
+                    if (applied[i]) {
+                        bids.addAll(writes.get(i).bids());
+                    }
+                }
+                if (!bids.isEmpty()) {
+                    addBids(insert, bids);
+                    insert.executeBatch();
+                }
+
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in BidDao.placeBids", e);
+        } finally {
+            PLACE_BIDS_TIMER.recordSince(start);
+        }
+
+        bidsCommitted(bids);
+        return applied;
+    }
+
+    private static void addBids(PreparedStatement insert, List<NewBid> bids) throws SQLException {
+        for (NewBid bid : bids) {
+            insert.setLong(1, bid.productId());
+            insert.setLong(2, bid.bidderId());
+            insert.setBigDecimal(3, bid.amount());
+            insert.addBatch();
+        }
+    }
+
+    private static void bidsCommitted(List<NewBid> bids) {
+        if (bids.isEmpty()) {
+            return; // only a hidden maximum changed
+        }
+        for (NewBid bid : bids) {
+            ProductCache.instance().onBidPlaced(bid.productId());
+        }
+        DashboardCounters.instance().bidsPlaced(bids.size());
+        CatalogVersion.instance().changed();
     }
 
     public Optional<BidDto> getHighestBid(Long productId) {
@@ -40,6 +197,7 @@ public class BidDao {
             LIMIT 1
         """;
 
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
@@ -52,41 +210,94 @@ public class BidDao {
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in BidDao.getHighestBid", e);
+        } finally {
+            GET_HIGHEST_BID_TIMER.recordSince(start);
         }
         return Optional.empty();
     }
 
     public List<BidDto> getBidHistory(Long productId) {
         List<BidDto> list = new ArrayList<>();
-        final String sql = """
+        long start = System.nanoTime();
+        try {
+            streamHistory(productId, null, 50, list::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // list::add does not throw
+        } finally {
+            GET_BID_HISTORY_TIMER.recordSince(start);
+        }
+        return list;
+    }
+
+    /**
+     * Hands one page of a product's bids, newest first, to {@code sink} as they are read.
+     *
+     * <p>Keyset pagination on {@code idx_bids_product_created}, which InnoDB extends with the primary key,
+     * so {@code (created_at, bid_id)} is one index range scan at any depth.</p>
+     *
+     * @return the cursor for the following page, or null if this was the last one
+     * @throws IOException if {@code sink} does
+     */
+    public PageCursor streamHistory(long productId, PageCursor after, int pageSize, RowSink<BidDto> sink) throws IOException {
+        final String firstPageSql = """
+            SELECT b.bid_id, b.product_id, b.bidder_user_id, b.amount, b.created_at,
+                   u.username as bidder_name
+            FROM bids b
+            JOIN users u ON b.bidder_user_id = u.user_id
+            WHERE b.product_id = ?
+            ORDER BY b.created_at DESC, b.bid_id DESC
+            LIMIT ?
+        """;
+        final String nextPageSql = """
             SELECT b.bid_id, b.product_id, b.bidder_user_id, b.amount, b.created_at,
                    u.username as bidder_name
             FROM bids b
             JOIN users u ON b.bidder_user_id = u.user_id
             WHERE b.product_id = ?
-            ORDER BY b.created_at DESC
-            LIMIT 50
+              AND (b.created_at < ? OR (b.created_at = ? AND b.bid_id < ?))
+            ORDER BY b.created_at DESC, b.bid_id DESC
+            LIMIT ?
         """;
 
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+             PreparedStatement ps = c.prepareStatement(after == null ? firstPageSql : nextPageSql)) {
+
+            int i = 1;
+            ps.setLong(i++, productId);
+            if (after != null) {
+                ps.setTimestamp(i++, after.createdAt());
+                ps.setTimestamp(i++, after.createdAt());
+                ps.setLong(i++, after.id());
+            }
+            // Fetch one extra row to know whether another page exists.
+            ps.setInt(i, pageSize + 1);
 
-            ps.setLong(1, productId);
             try (ResultSet rs = ps.executeQuery()) {
+                int count = 0;
+                BidDto last = null;
                 while (rs.next()) {
-                    list.add(mapToBidDto(rs));
+                    if (count == pageSize) {
+                        return new PageCursor(last.createdAt(), last.id());
+                    }
+                    last = mapToBidDto(rs);
+                    sink.accept(last);
+                    count++;
                 }
+                return null;
             }
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in BidDao.getBidHistory", e);
+        } finally {
+            STREAM_HISTORY_TIMER.recordSince(start);
         }
-        return list;
     }
 
     public int getBidCount(Long productId) {
         final String sql = "SELECT COUNT(*) FROM bids WHERE product_id = ?";
 
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
@@ -99,11 +310,89 @@ public class BidDao {
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in BidDao.getBidCount", e);
+        } finally {
+            GET_BID_COUNT_TIMER.recordSince(start);
         }
         return 0;
     }
 
-    private BidDto mapToBidDto(ResultSet rs) throws SQLException {
+    /**
+     * The denormalized bid summary of every auction that has not been closed, read from {@code products}
+     * alone. Used to rebuild the in-memory bid engine at startup; closed auctions are loaded lazily if
+     * anyone bids on them.
+     */
+    public List<AuctionSummary> findAuctionSummaries() {
+        List<AuctionSummary> list = new ArrayList<>();
+        final String sql = """
+            SELECT product_id, seller_user_id, current_price, bid_count, high_bidder_user_id,
+                   high_bidder_max, ends_at, closed_at
+            FROM products
+            WHERE closed_at IS NULL
+        """;
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                list.add(mapToAuctionSummary(rs));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in BidDao.findAuctionSummaries", e);
+        } finally {
+            FIND_AUCTION_SUMMARIES_TIMER.recordSince(start);
+        }
+        return list;
+    }
+
+    /**
+     * One product's auction from its denormalized bid summary, or null if it does not exist.
+     * Used by the bid engine to load a product on its first bid.
+     */
+    public AuctionSummary findAuctionSummary(long productId) {
+        final String sql = """
+            SELECT product_id, seller_user_id, current_price, bid_count, high_bidder_user_id,
+                   high_bidder_max, ends_at, closed_at
+            FROM products
+            WHERE product_id = ?
+        """;
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setLong(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapToAuctionSummary(rs);
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in BidDao.findAuctionSummary", e);
+        } finally {
+            FIND_AUCTION_SUMMARY_TIMER.recordSince(start);
+        }
+        return null;
+    }
+
+    private static AuctionSummary mapToAuctionSummary(ResultSet rs) throws SQLException {
+        return new AuctionSummary(
+                rs.getLong("product_id"),
+                rs.getLong("seller_user_id"),
+                rs.getBigDecimal("current_price"),
+                rs.getObject("high_bidder_user_id", Long.class),
+                rs.getBigDecimal("high_bidder_max"),
+                rs.getInt("bid_count"),
+                rs.getTimestamp("ends_at"),
+                rs.getTimestamp("closed_at") != null
+        );
+    }
+
+    // Package-private for the row mapping benchmark
+    BidDto mapToBidDto(ResultSet rs) throws SQLException {
         return new BidDto(
                 rs.getLong("bid_id"),
                 rs.getLong("product_id"),
@@ -122,4 +411,39 @@ public class BidDao {
             BigDecimal amount,
             Timestamp createdAt
     ) {}
+
+    public record NewBid(long productId, long bidderId, BigDecimal amount) {}
+
+    /**
+     * One bid as the bid engine resolved it: the visible bids it produced, in ascending order (none when
+     * the high bidder only raised their maximum), and the product's bid summary afterwards.
+     *
+     * @param previousPrice         the current price the bid was resolved against
+     * @param previousHighBidderId  the high bidder it was resolved against, or null if there was none
+     * @param previousHighBidderMax that high bidder's maximum, never below {@code previousPrice}
+     */
+    public record BidWrite(
+            long productId,
+            BigDecimal previousPrice,
+            Long previousHighBidderId,
+            BigDecimal previousHighBidderMax,
+            List<NewBid> bids,
+            BigDecimal currentPrice,
+            long highBidderId,
+            BigDecimal highBidderMax
+    ) {}
+
+    /**
+     * @param highBidderMax the high bidder's hidden proxy maximum, or null if not recorded
+     */
+    public record AuctionSummary(
+            long productId,
+            long sellerId,
+            BigDecimal currentPrice,
+            Long highBidderId,
+            BigDecimal highBidderMax,
+            int bidCount,
+            Timestamp endsAt,
+            boolean closed
+    ) {}
 }
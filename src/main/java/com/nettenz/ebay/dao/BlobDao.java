@@ -0,0 +1,98 @@
+package com.nettenz.ebay.dao;
+
+import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.metrics.Histogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bookkeeping for content-addressed blobs: one row per stored blob, with the number of products
+ * that reference it. {@link ProductDao#create} increments the count in the product's transaction.
+ */
+public class BlobDao {
+
+    private static final Histogram RECORD_UPLOAD_TIMER = DaoMetrics.timer("BlobDao", "recordUpload");
+    private static final Histogram FIND_UNREFERENCED_TIMER = DaoMetrics.timer("BlobDao", "findUnreferenced");
+    private static final Histogram DELETE_IF_UNREFERENCED_TIMER = DaoMetrics.timer("BlobDao", "deleteIfUnreferenced");
+
+    /**
+     * Registers an upload, or refreshes {@code last_uploaded_at} if the same content was stored before,
+     * which restarts its grace period before garbage collection.
+     */
+    public void recordUpload(String blobKey, long sizeBytes) {
+        final String sql = """
+            INSERT INTO blobs (blob_key, size_bytes)
+            VALUES (?, ?)
+            ON DUPLICATE KEY UPDATE last_uploaded_at = CURRENT_TIMESTAMP
+        """;
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, blobKey);
+            ps.setLong(2, sizeBytes);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in BlobDao.recordUpload", e);
+        } finally {
+            RECORD_UPLOAD_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} blobs that no product references and that were last uploaded before {@code cutoff}.
+     */
+    public List<String> findUnreferenced(Timestamp cutoff, int limit) {
+        final String sql = """
+            SELECT blob_key FROM blobs
+            WHERE ref_count = 0 AND last_uploaded_at < ?
+            ORDER BY last_uploaded_at
+            LIMIT ?
+        """;
+
+        List<String> keys = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setTimestamp(1, cutoff);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(rs.getString("blob_key"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in BlobDao.findUnreferenced", e);
+        } finally {
+            FIND_UNREFERENCED_TIMER.recordSince(start);
+        }
+        return keys;
+    }
+
+    /**
+     * Deletes the blob's row if it is still unreferenced and was not uploaded again since {@code cutoff}.
+     *
+     * @return true if the row was deleted and the files may be removed
+     */
+    public boolean deleteIfUnreferenced(String blobKey, Timestamp cutoff) {
+        final String sql = "DELETE FROM blobs WHERE blob_key = ? AND ref_count = 0 AND last_uploaded_at < ?";
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, blobKey);
+            ps.setTimestamp(2, cutoff);
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in BlobDao.deleteIfUnreferenced", e);
+        } finally {
+            DELETE_IF_UNREFERENCED_TIMER.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nettenz.ebay.dao;
+
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.metrics.Metrics;
+
+/**
+ * Per-method latency histograms of the DAOs, including the wait for a pooled connection.
+ */
+final class DaoMetrics {
+
+    private DaoMetrics() {}
+
+    static Histogram timer(String dao, String method) {
+        return Metrics.instance().histogram("dao_call_duration_seconds",
+                "Time spent in a DAO method, by DAO and method", "dao", dao, "method", method);
+    }
+}
@@ -1,6 +1,8 @@
 package com.nettenz.ebay.dao;
 
+import com.nettenz.ebay.cache.CatalogVersion;
 import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.metrics.Histogram;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -11,21 +13,29 @@ import java.util.List;
 
 public class DepartmentDao {
 
+    private static final Histogram CREATE_TIMER = DaoMetrics.timer("DepartmentDao", "create");
+    private static final Histogram FIND_ALL_TIMER = DaoMetrics.timer("DepartmentDao", "findAll");
+
     public void create(String name) {
         final String sql = "INSERT INTO departments (name) VALUES (?)";
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, name);
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("DB error creating department", e);
+        } finally {
+            CREATE_TIMER.recordSince(start);
         }
+        CatalogVersion.instance().changed();
     }
 
     public List<DepartmentRecord> findAll() {
         List<DepartmentRecord> list = new ArrayList<>();
         final String sql = "SELECT department_id, name FROM departments ORDER BY name";
 
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
@@ -38,6 +48,8 @@ public class DepartmentDao {
             }
         } catch (SQLException e) {
             throw new RuntimeException("DB error in DepartmentDao.findAll", e);
+        } finally {
+            FIND_ALL_TIMER.recordSince(start);
         }
         return list;
     }
@@ -0,0 +1,35 @@
+package com.nettenz.ebay.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by {@code (created_at DESC, <primary key> DESC)}: products, or one
+ * product's bids. Encoded as an opaque URL-safe token so clients cannot depend on its contents.
+ */
+public record PageCursor(Timestamp createdAt, long id) {
+
+    public String encode() {
+        String raw = createdAt.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int sep = raw.indexOf(':');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Malformed page token");
+            }
+            return new PageCursor(
+                    new Timestamp(Long.parseLong(raw.substring(0, sep))),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+    }
+}
@@ -1,82 +1,271 @@
 package com.nettenz.ebay.dao;
 
+import com.nettenz.ebay.auction.AuctionCloser;
+import com.nettenz.ebay.cache.CatalogVersion;
+import com.nettenz.ebay.cache.ProductCache;
 import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.image.ImageVariant;
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.search.SearchIndex;
+import com.nettenz.ebay.stats.DashboardCounters;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ProductDao {
 
-    public void create(Long sellerId, Long departmentId, String name, String description, String imageUrl, BigDecimal startingBid) {
+    private static final Histogram CREATE_TIMER = DaoMetrics.timer("ProductDao", "create");
+    private static final Histogram FIND_PAGE_TIMER = DaoMetrics.timer("ProductDao", "findPage");
+    private static final Histogram STREAM_PAGE_TIMER = DaoMetrics.timer("ProductDao", "streamPage");
+    private static final Histogram FIND_SEARCH_DOCS_AFTER_TIMER = DaoMetrics.timer("ProductDao", "findSearchDocsAfter");
+    private static final Histogram SET_IMAGE_VARIANTS_TIMER = DaoMetrics.timer("ProductDao", "setImageVariants");
+    private static final Histogram FIND_BY_ID_TIMER = DaoMetrics.timer("ProductDao", "findById");
+    private static final Histogram FIND_BY_IDS_TIMER = DaoMetrics.timer("ProductDao", "findByIds");
+    private static final Histogram RECONCILE_BID_SUMMARIES_TIMER = DaoMetrics.timer("ProductDao", "reconcileBidSummaries");
+
+    /**
+     * Inserts a product. An uploaded image ({@code /images/<blob key>}) gains a reference in {@code blobs}
+     * in the same transaction, so the blob garbage collector never removes an image a product points to.
+     * Once committed, the end time is handed to the {@link AuctionCloser}.
+     *
+     * @param endsAt when bidding ends, or null for an auction without an end
+     * @return the generated product id
+     */
+    public long create(Long sellerId, Long departmentId, String name, String description, String imageUrl,
+                       BigDecimal startingBid, Timestamp endsAt) {
         final String sql = """
-            INSERT INTO products (seller_user_id, department_id, name, description, image_url, starting_bid)
-            VALUES (?, ?, ?, ?, ?, ?)
+            INSERT INTO products (seller_user_id, department_id, name, description, image_url, starting_bid, current_price, ends_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
         """;
+        final String refSql = "UPDATE blobs SET ref_count = ref_count + 1 WHERE blob_key = ?";
 
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            
-            ps.setLong(1, sellerId);
-            if (departmentId != null) {
-                ps.setLong(2, departmentId);
-            } else {
-                ps.setNull(2, Types.BIGINT);
+        long productId;
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                ps.setLong(1, sellerId);
+                if (departmentId != null) {
+                    ps.setLong(2, departmentId);
+                } else {
+                    ps.setNull(2, Types.BIGINT);
+                }
+                ps.setString(3, name);
+                ps.setString(4, description);
+                ps.setString(5, imageUrl);
+                ps.setBigDecimal(6, startingBid);
+                ps.setBigDecimal(7, startingBid);
+                ps.setTimestamp(8, endsAt);
+
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("No generated key returned for new product");
+                    }
+                    productId = keys.getLong(1);
+                }
+
+                // Legacy upload names and external URLs have no blob row; the update is then a no-op.
+                if (imageUrl != null && imageUrl.startsWith("/images/")) {
+                    try (PreparedStatement ref = c.prepareStatement(refSql)) {
+                        ref.setString(1, imageUrl.substring("/images/".length()));
+                        ref.executeUpdate();
+                    }
+                }
+
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
             }
-            ps.setString(3, name);
-            ps.setString(4, description);
-            ps.setString(5, imageUrl);
-            ps.setBigDecimal(6, startingBid);
-            
-            ps.executeUpdate();
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in ProductDao.create", e);
+        } finally {
+            CREATE_TIMER.recordSince(start);
+        }
+        DashboardCounters.instance().productCreated();
+        SearchIndex.instance().add(new SearchDoc(productId, departmentId, name, description));
+        CatalogVersion.instance().changed();
+        if (endsAt != null) {
+            AuctionCloser.instance().schedule(productId, endsAt.getTime());
         }
+        return productId;
     }
 
-    public List<ProductDto> findAll() {
-        List<ProductDto> list = new ArrayList<>();
-        final String sql = """
+    /**
+     * Returns one page of products, newest first, starting strictly after {@code after}
+     * (or from the top when {@code after} is null).
+     *
+     * <p>Keyset pagination: the {@code (created_at, product_id)} predicate is an index range scan on
+     * {@code idx_products_created}, so every page costs the same regardless of depth.</p>
+     */
+    public ProductPage findPage(PageCursor after, int pageSize) {
+        List<ProductDto> list = new ArrayList<>(pageSize);
+        long start = System.nanoTime();
+        try {
+            PageCursor next = queryPage(after, pageSize, list::add);
+            return new ProductPage(list, next);
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in ProductDao.findPage", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // list::add does not throw
+        } finally {
+            FIND_PAGE_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Like {@link #findPage}, but hands each product to {@code sink} as it is read instead of collecting
+     * the page, so callers can write rows out while the result set is still open.
+     *
+     * @return the cursor for the following page, or null if this was the last one
+     * @throws IOException if {@code sink} does
+     */
+    public PageCursor streamPage(PageCursor after, int pageSize, RowSink<ProductDto> sink) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return queryPage(after, pageSize, sink);
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in ProductDao.streamPage", e);
+        } finally {
+            STREAM_PAGE_TIMER.recordSince(start);
+        }
+    }
+
+    /** Shared body of {@link #findPage} and {@link #streamPage}; untimed so each caller records only its own timer. */
+    private PageCursor queryPage(PageCursor after, int pageSize, RowSink<ProductDto> sink)
+            throws SQLException, IOException {
+        final String firstPageSql = """
             SELECT p.product_id, p.seller_user_id, p.name, p.description, p.image_url, p.starting_bid, p.created_at,
-                   u.username as seller_name,
-                   COALESCE(MAX(b.amount), p.starting_bid) as current_price,
-                   COUNT(b.bid_id) as bid_count
+                   p.current_price, p.bid_count, p.high_bidder_user_id, p.image_variants,
+                   p.ends_at, p.closed_at, p.winner_user_id,
+                   u.username as seller_name
             FROM products p
             JOIN users u ON p.seller_user_id = u.user_id
-            LEFT JOIN bids b ON p.product_id = b.product_id
-            GROUP BY p.product_id, p.seller_user_id, p.name, p.description, p.image_url, p.starting_bid, p.created_at, u.username
-            ORDER BY p.created_at DESC
+            ORDER BY p.created_at DESC, p.product_id DESC
+            LIMIT ?
+        """;
+        final String nextPageSql = """
+            SELECT p.product_id, p.seller_user_id, p.name, p.description, p.image_url, p.starting_bid, p.created_at,
+                   p.current_price, p.bid_count, p.high_bidder_user_id, p.image_variants,
+                   p.ends_at, p.closed_at, p.winner_user_id,
+                   u.username as seller_name
+            FROM products p
+            JOIN users u ON p.seller_user_id = u.user_id
+            WHERE p.created_at < ? OR (p.created_at = ? AND p.product_id < ?)
+            ORDER BY p.created_at DESC, p.product_id DESC
+            LIMIT ?
+        """;
+
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(after == null ? firstPageSql : nextPageSql)) {
+
+            int i = 1;
+            if (after != null) {
+                ps.setTimestamp(i++, after.createdAt());
+                ps.setTimestamp(i++, after.createdAt());
+                ps.setLong(i++, after.id());
+            }
+            // Fetch one extra row to know whether another page exists.
+            ps.setInt(i, pageSize + 1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                int count = 0;
+                ProductDto last = null;
+                while (rs.next()) {
+                    if (count == pageSize) {
+                        return new PageCursor(last.createdAt(), last.id());
+                    }
+                    last = mapToProductDto(rs);
+                    sink.accept(last);
+                    count++;
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} products with an id greater than {@code afterId}, in id order,
+     * with just the fields the search index needs.
+     */
+    public List<SearchDoc> findSearchDocsAfter(long afterId, int limit) {
+        final String sql = """
+            SELECT product_id, department_id, name, description
+            FROM products
+            WHERE product_id > ?
+            ORDER BY product_id
+            LIMIT ?
         """;
 
+        List<SearchDoc> list = new ArrayList<>();
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+             PreparedStatement ps = c.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                list.add(mapToProductDto(rs));
+            ps.setLong(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new SearchDoc(
+                            rs.getLong("product_id"),
+                            rs.getObject("department_id", Long.class),
+                            rs.getString("name"),
+                            rs.getString("description")
+                    ));
+                }
             }
 
         } catch (SQLException e) {
-            throw new RuntimeException("DB error in findAll products", e);
+            throw new RuntimeException("DB error in ProductDao.findSearchDocsAfter", e);
+        } finally {
+            FIND_SEARCH_DOCS_AFTER_TIMER.recordSince(start);
         }
         return list;
     }
 
+    /**
+     * Records which resized image variants exist for the product (comma-separated {@link ImageVariant} names).
+     */
+    public void setImageVariants(long productId, String variants) {
+        final String sql = "UPDATE products SET image_variants = ? WHERE product_id = ?";
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, variants);
+            ps.setLong(2, productId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in ProductDao.setImageVariants", e);
+        } finally {
+            SET_IMAGE_VARIANTS_TIMER.recordSince(start);
+        }
+        ProductCache.instance().onProductChanged(productId);
+        CatalogVersion.instance().changed();
+    }
+
     public ProductDto findById(Long productId) {
         final String sql = """
             SELECT p.product_id, p.seller_user_id, p.name, p.description, p.image_url, p.starting_bid, p.created_at,
-                   u.username as seller_name,
-                   COALESCE(MAX(b.amount), p.starting_bid) as current_price,
-                   COUNT(b.bid_id) as bid_count
+                   p.current_price, p.bid_count, p.high_bidder_user_id, p.image_variants,
+                   p.ends_at, p.closed_at, p.winner_user_id,
+                   u.username as seller_name
             FROM products p
             JOIN users u ON p.seller_user_id = u.user_id
-            LEFT JOIN bids b ON p.product_id = b.product_id
             WHERE p.product_id = ?
-            GROUP BY p.product_id, p.seller_user_id, p.name, p.description, p.image_url, p.starting_bid, p.created_at, u.username
         """;
 
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
@@ -89,11 +278,127 @@ public class ProductDao {
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in findById product", e);
+        } finally {
+            FIND_BY_ID_TIMER.recordSince(start);
         }
         return null;
     }
 
-    private ProductDto mapToProductDto(ResultSet rs) throws SQLException {
+    /**
+     * Loads several products with one query, for pages that list products by id (search results).
+     *
+     * <p>The {@code IN} list is padded to the next power of two by repeating the last id, so a handful of
+     * statement shapes cover every page size and stay in the per-connection statement cache.</p>
+     *
+     * @return the products that exist, by id
+     */
+    public Map<Long, ProductDto> findByIds(List<Long> productIds) {
+        Map<Long, ProductDto> products = new HashMap<>(productIds.size() * 2);
+        if (productIds.isEmpty()) {
+            return products;
+        }
+        int slots = Math.max(1, Integer.highestOneBit(productIds.size() - 1) << 1);
+        final String sql = """
+            SELECT p.product_id, p.seller_user_id, p.name, p.description, p.image_url, p.starting_bid, p.created_at,
+                   p.current_price, p.bid_count, p.high_bidder_user_id, p.image_variants,
+                   p.ends_at, p.closed_at, p.winner_user_id,
+                   u.username as seller_name
+            FROM products p
+            JOIN users u ON p.seller_user_id = u.user_id
+            WHERE p.product_id IN (%s)
+        """.formatted(String.join(", ", Collections.nCopies(slots, "?")));
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            for (int i = 0; i < slots; i++) {
+                ps.setLong(i + 1, productIds.get(Math.min(i, productIds.size() - 1)));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ProductDto product = mapToProductDto(rs);
+                    products.put(product.id(), product);
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in ProductDao.findByIds", e);
+        } finally {
+            FIND_BY_IDS_TIMER.recordSince(start);
+        }
+        return products;
+    }
+
+    /**
+     * Recomputes {@code current_price}, {@code bid_count} and {@code high_bidder_user_id} from the
+     * {@code bids} table for every product whose stored values have drifted.
+     * Used to backfill the columns after the migration and to repair them afterwards.
+     * Where the repair changes the high bidder, {@code high_bidder_max} is cleared in the same transaction:
+     * it was the previous leader's maximum, and proxy bidding must not bid it on the new leader's behalf.
+     *
+     * @return number of products that were corrected
+     */
+    public int reconcileBidSummaries() {
+        // Runs first, while high_bidder_user_id still holds the stored leader
+        final String clearMaxSql = """
+            UPDATE products p
+            SET p.high_bidder_max = NULL
+            WHERE p.high_bidder_max IS NOT NULL
+              AND NOT (p.high_bidder_user_id <=> (
+                    SELECT b.bidder_user_id FROM bids b
+                    WHERE b.product_id = p.product_id
+                    ORDER BY b.amount DESC, b.bid_id ASC
+                    LIMIT 1
+              ))
+        """;
+        final String sql = """
+            UPDATE products p
+            LEFT JOIN (
+                SELECT product_id, MAX(amount) as max_amount, COUNT(*) as bid_count
+                FROM bids
+                GROUP BY product_id
+            ) agg ON agg.product_id = p.product_id
+            SET p.current_price = COALESCE(agg.max_amount, p.starting_bid),
+                p.bid_count = COALESCE(agg.bid_count, 0),
+                p.high_bidder_user_id = (
+                    SELECT b.bidder_user_id FROM bids b
+                    WHERE b.product_id = p.product_id
+                    ORDER BY b.amount DESC, b.bid_id ASC
+                    LIMIT 1
+                )
+            WHERE p.current_price <> COALESCE(agg.max_amount, p.starting_bid)
+               OR p.bid_count <> COALESCE(agg.bid_count, 0)
+               OR NOT (p.high_bidder_user_id <=> (
+                    SELECT b.bidder_user_id FROM bids b
+                    WHERE b.product_id = p.product_id
+                    ORDER BY b.amount DESC, b.bid_id ASC
+                    LIMIT 1
+               ))
+        """;
+
+        long start = System.nanoTime();
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement clearMax = c.prepareStatement(clearMaxSql);
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                clearMax.executeUpdate();
+                int corrected = ps.executeUpdate();
+                c.commit();
+                return corrected;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB error in ProductDao.reconcileBidSummaries", e);
+        } finally {
+            RECONCILE_BID_SUMMARIES_TIMER.recordSince(start);
+        }
+    }
+
+    // Package-private for the row mapping benchmark
+    ProductDto mapToProductDto(ResultSet rs) throws SQLException {
         return new ProductDto(
                 rs.getLong("product_id"),
                 rs.getLong("seller_user_id"),
@@ -104,10 +409,24 @@ public class ProductDao {
                 rs.getBigDecimal("current_price"),
                 rs.getString("seller_name"),
                 rs.getInt("bid_count"),
-                rs.getTimestamp("created_at")
+                rs.getTimestamp("created_at"),
+                rs.getObject("high_bidder_user_id", Long.class),
+                rs.getString("image_variants"),
+                rs.getTimestamp("ends_at"),
+                rs.getTimestamp("closed_at"),
+                rs.getObject("winner_user_id", Long.class)
         );
     }
 
+    public record SearchDoc(long id, Long departmentId, String name, String description) {}
+
+    public record ProductPage(List<ProductDto> items, PageCursor next) {
+
+        public String nextToken() {
+            return next != null ? next.encode() : null;
+        }
+    }
+
     public record ProductDto(
             Long id,
             Long sellerId,
@@ -118,6 +437,39 @@ public class ProductDao {
             BigDecimal currentPrice,
             String sellerName,
             int bidCount,
-            Timestamp createdAt
-    ) {}
+            Timestamp createdAt,
+            Long highBidderId,
+            String imageVariants,
+            Timestamp endsAt,
+            Timestamp closedAt,
+            Long winnerId
+    ) {
+
+        /**
+         * True once the auction has been closed or its end time has passed, even if the closer
+         * has not caught up with it yet.
+         */
+        public boolean ended() {
+            return closedAt != null || (endsAt != null && endsAt.getTime() <= System.currentTimeMillis());
+        }
+
+        /**
+         * URL of the product image in the given size, falling back to the original until the
+         * resized variants have been generated. Null when the product has no image.
+         */
+        public String imageSrc(String contextPath, ImageVariant variant) {
+            if (imageUrl == null || imageUrl.isBlank()) {
+                return null;
+            }
+            if (!imageUrl.startsWith("/images/")) {
+                return imageUrl; // external URL
+            }
+            String src = contextPath + imageUrl;
+            if (variant != ImageVariant.ORIGINAL && imageVariants != null
+                    && List.of(imageVariants.split(",")).contains(variant.param())) {
+                src += "?size=" + variant.param();
+            }
+            return src;
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.nettenz.ebay.dao;
+
+import java.io.IOException;
+
+/**
+ * Receives rows one at a time from the DAO's streaming queries, while the result set is still open.
+ */
+@FunctionalInterface
+public interface RowSink<T> {
+    void accept(T row) throws IOException;
+}
@@ -1,6 +1,8 @@
 package com.nettenz.ebay.dao;
 
 import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.stats.DashboardCounters;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -9,8 +11,13 @@ import java.sql.SQLException;
 
 public class UserDao {
 
+    private static final Histogram CREATE_TIMER = DaoMetrics.timer("UserDao", "create");
+    private static final Histogram EXISTS_BY_USERNAME_TIMER = DaoMetrics.timer("UserDao", "existsByUsername");
+    private static final Histogram FIND_BY_USERNAME_TIMER = DaoMetrics.timer("UserDao", "findByUsername");
+
     public void create(String username, String passwordHash, String role) {
         final String sql = "INSERT INTO users (username, password_hash, role) VALUES (?, ?, ?)";
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, username);
@@ -19,11 +26,15 @@ public class UserDao {
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("DB error in create user", e);
+        } finally {
+            CREATE_TIMER.recordSince(start);
         }
+        DashboardCounters.instance().userCreated();
     }
 
     public boolean existsByUsername(String username) {
         final String sql = "SELECT 1 FROM users WHERE username = ?";
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, username);
@@ -32,6 +43,8 @@ public class UserDao {
             }
         } catch (SQLException e) {
             throw new RuntimeException("DB error in existsByUsername", e);
+        } finally {
+            EXISTS_BY_USERNAME_TIMER.recordSince(start);
         }
     }
 
@@ -42,6 +55,7 @@ public class UserDao {
           WHERE username = ?
         """;
 
+        long start = System.nanoTime();
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
@@ -60,6 +74,8 @@ public class UserDao {
 
         } catch (SQLException e) {
             throw new RuntimeException("DB error in findByUsername()", e);
+        } finally {
+            FIND_BY_USERNAME_TIMER.recordSince(start);
         }
     }
 
@@ -0,0 +1,375 @@
+package com.nettenz.ebay.db;
+
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool used by {@link Db}.
+ *
+ * <ul>
+ *   <li>Never holds more than {@code maxSize} physical connections; borrowers wait up to
+ *       {@code acquireTimeoutMs} for one to be returned.</li>
+ *   <li>Connections idle for longer than {@code validationIntervalMs} are pinged before being handed out.</li>
+ *   <li>A housekeeping thread evicts connections idle past {@code idleTimeoutMs} (down to {@code minSize}),
+ *       tops the pool back up to {@code minSize} and reports leases held past {@code leakThresholdMs}.</li>
+ *   <li>Each connection keeps an LRU cache of up to {@code statementCacheSize} prepared statements
+ *       (see {@link StatementCache}).</li>
+ * </ul>
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MS = 30_000;
+    private static final int ACQUIRE_SAMPLES = 1024; // power of two
+
+    private static final Histogram ACQUIRE_TIMER = Metrics.instance().histogram("db_pool_acquire_duration_seconds",
+            "Time to borrow a connection from the pool, including validation and opening new connections");
+
+    private final Config config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>(); // guarded by lock, most recently returned first
+    private int total;                                                    // guarded by lock, includes connections being opened
+    private int waiting;                                                  // guarded by lock
+    private boolean closed;                                               // guarded by lock
+
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLongArray acquireNanos = new AtomicLongArray(ACQUIRE_SAMPLES);
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(Config config) {
+        if (config.minSize() < 0 || config.maxSize() < 1 || config.minSize() > config.maxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.minSize() + ", max=" + config.maxSize());
+        }
+        this.config = config;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        // First run fills the pool to minSize in the background so startup never blocks on the DB.
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection. Closing the returned connection gives it back to the pool.
+     *
+     * @throws SQLTimeoutException if no connection became available within the acquisition timeout
+     */
+    public Connection borrow() throws SQLException {
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.acquireTimeoutMs());
+
+        while (true) {
+            PooledConnection pc;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && total >= config.maxSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLTimeoutException("Timed out after " + config.acquireTimeoutMs()
+                                + " ms waiting for a database connection (active=" + borrowed.size()
+                                + ", max=" + config.maxSize() + ")");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool has been shut down");
+                }
+                pc = idle.pollFirst();
+                if (pc == null) {
+                    total++;
+                    create = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    pc = open();
+                } catch (SQLException e) {
+                    forget();
+                    throw e;
+                }
+            } else if (!isUsable(pc)) {
+                pc.closeQuietly();
+                forget();
+                continue;
+            }
+
+            borrowed.add(pc);
+            Connection handle = pc.lease(config.leakThresholdMs() > 0);
+            recordAcquire(System.nanoTime() - start);
+            return handle;
+        }
+    }
+
+    /**
+     * Called by the connection handle on {@code close()}.
+     */
+    void release(PooledConnection pc) {
+        borrowed.remove(pc);
+
+        boolean healthy;
+        try {
+            pc.reset();
+            healthy = true;
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        pc.closeQuietly();
+        forget();
+    }
+
+    public Stats stats() {
+        int idleCount;
+        int totalCount;
+        int waitingCount;
+        lock.lock();
+        try {
+            idleCount = idle.size();
+            totalCount = total;
+            waitingCount = waiting;
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(borrowed.size(), idleCount, totalCount, waitingCount, config.maxSize(),
+                acquirePercentileMillis(0.99), acquireCount.get(), timeoutCount.get(),
+                statementCounters.hits.sum(), statementCounters.misses.sum(), statementCounters.evictions.sum());
+    }
+
+    @Override
+    public void close() {
+        housekeeper.shutdownNow();
+        ArrayDeque<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Borrowed connections are closed by release() once their owners are done with them.
+        toClose.forEach(PooledConnection::closeQuietly);
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection raw = DriverManager.getConnection(config.url(), config.user(), config.password());
+        StatementCache cache = config.statementCacheSize() > 0
+                ? new StatementCache(config.statementCacheSize(), statementCounters)
+                : null;
+        return new PooledConnection(this, raw, cache);
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastReturnedAt() < config.validationIntervalMs()) {
+            return true;
+        }
+        try {
+            return pc.raw().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives up a slot previously counted in {@code total} and wakes one waiter so it can open a replacement.
+     */
+    private void forget() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            reportLeaks();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - config.idleTimeoutMs();
+        ArrayDeque<PooledConnection> evicted = new ArrayDeque<>();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> it = idle.descendingIterator(); // oldest first
+            while (it.hasNext() && total > config.minSize()) {
+                PooledConnection pc = it.next();
+                if (pc.lastReturnedAt() >= cutoff) {
+                    break;
+                }
+                it.remove();
+                total--;
+                evicted.add(pc);
+            }
+        } finally {
+            lock.unlock();
+        }
+        evicted.forEach(PooledConnection::closeQuietly);
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= config.minSize()) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            PooledConnection pc;
+            try {
+                pc = open();
+            } catch (SQLException e) {
+                forget();
+                LOG.log(Level.WARNING, "Could not open database connection while filling pool", e);
+                return;
+            }
+
+            lock.lock();
+            try {
+                if (!closed) {
+                    idle.addLast(pc);
+                    available.signal();
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+            pc.closeQuietly();
+            forget();
+            return;
+        }
+    }
+
+    private void reportLeaks() {
+        if (config.leakThresholdMs() <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : borrowed) {
+            long heldFor = now - pc.borrowedAt();
+            if (heldFor > config.leakThresholdMs() && !pc.isLeakReported()) {
+                pc.markLeakReported();
+                LOG.log(Level.WARNING, "Possible connection leak: connection held for " + heldFor + " ms",
+                        pc.borrowSite());
+            }
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        long n = acquireCount.getAndIncrement();
+        acquireNanos.set((int) (n & (ACQUIRE_SAMPLES - 1)), nanos);
+        ACQUIRE_TIMER.record(nanos);
+    }
+
+    private double acquirePercentileMillis(double percentile) {
+        int n = (int) Math.min(acquireCount.get(), ACQUIRE_SAMPLES);
+        if (n == 0) {
+            return 0;
+        }
+        long[] samples = new long[n];
+        for (int i = 0; i < n; i++) {
+            samples[i] = acquireNanos.get(i);
+        }
+        Arrays.sort(samples);
+        int idx = (int) Math.ceil(percentile * n) - 1;
+        return samples[Math.max(0, idx)] / 1_000_000.0;
+    }
+
+    public record Config(
+            String url,
+            String user,
+            String password,
+            int minSize,
+            int maxSize,
+            long acquireTimeoutMs,
+            long idleTimeoutMs,
+            long validationIntervalMs,
+            long leakThresholdMs,
+            int statementCacheSize
+    ) {}
+
+    /**
+     * Point-in-time pool statistics. {@code p99AcquireMillis} is computed over the most recent
+     * {@value #ACQUIRE_SAMPLES} acquisitions. Every statement cache hit is a server-side parse/plan
+     * ({@code COM_STMT_PREPARE}) that MySQL did not have to do.
+     */
+    public record Stats(
+            int active,
+            int idle,
+            int total,
+            int waiting,
+            int maxSize,
+            double p99AcquireMillis,
+            long acquired,
+            long timeouts,
+            long statementCacheHits,
+            long statementCacheMisses,
+            long statementCacheEvictions
+    ) {}
+}
@@ -1,20 +1,40 @@
 package com.nettenz.ebay.db;
 
+import com.nettenz.ebay.util.Env;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public final class Db {
 
-    private static final String DB_HOST = getEnv("DB_HOST", "localhost");
-    private static final String DB_PORT = getEnv("DB_PORT", "3306");
-    private static final String DB_NAME = getEnv("DB_NAME", "ebay");
-    private static final String USER = getEnv("DB_USER", "root");
-    private static final String PASS = getEnv("DB_PASS", "Ema.3094!");
+    private static final String DB_HOST = Env.get("DB_HOST", "localhost");
+    private static final String DB_PORT = Env.get("DB_PORT", "3306");
+    private static final String DB_NAME = Env.get("DB_NAME", "ebay");
+    private static final String USER = Env.get("DB_USER", "root");
+    private static final String PASS = Env.get("DB_PASS", "Ema.3094!");
+
+    private static final int STATEMENT_CACHE_SIZE = Env.getInt("DB_STATEMENT_CACHE_SIZE", 64);
+
+    // Server-side prepares only pay off when the statements are reused, i.e. when the pool caches them.
+    // DB_URL replaces the whole URL, e.g. to point the load test at an in-process database.
+    private static final String URL = Env.get("DB_URL",
+            String.format("jdbc:mysql://%s:%s/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"
+                            + "&rewriteBatchedStatements=true%s",
+                    DB_HOST, DB_PORT, DB_NAME,
+                    STATEMENT_CACHE_SIZE > 0 ? "&useServerPrepStmts=true&cachePrepStmts=false" : ""));
 
-    private static final String URL =
-            String.format("jdbc:mysql://%s:%s/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC",
-                    DB_HOST, DB_PORT, DB_NAME);
+    private static final ConnectionPool.Config POOL_CONFIG = new ConnectionPool.Config(
+            URL, USER, PASS,
+            Env.getInt("DB_POOL_MIN_SIZE", 2),
+            Env.getInt("DB_POOL_MAX_SIZE", 20),
+            Env.getInt("DB_POOL_ACQUIRE_TIMEOUT_MS", 5_000),
+            Env.getInt("DB_POOL_IDLE_TIMEOUT_MS", 600_000),
+            Env.getInt("DB_POOL_VALIDATION_INTERVAL_MS", 500),
+            Env.getInt("DB_POOL_LEAK_THRESHOLD_MS", 0),
+            STATEMENT_CACHE_SIZE
+    );
+
+    private static volatile ConnectionPool pool;
 
     static {
         try {
@@ -26,12 +46,39 @@ public final class Db {
 
     private Db() {}
 
+    /**
+     * Borrows a pooled connection. Always use try-with-resources: {@code close()} returns it to the pool.
+     * Statements run on it are traced by {@link QueryTracer} unless {@code DB_TRACE=false}.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
+        return QueryTracer.wrap(pool().borrow());
+    }
+
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
     }
 
-    private static String getEnv(String key, String defaultValue) {
-        String value = System.getenv(key);
-        return (value != null && !value.isBlank()) ? value : defaultValue;
+    /**
+     * Closes idle connections and stops the pool. Called when the web application is undeployed.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Db.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(POOL_CONFIG);
+                    pool = p;
+                }
+            }
+        }
+        return p;
     }
 }
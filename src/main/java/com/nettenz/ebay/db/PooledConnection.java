@@ -0,0 +1,138 @@
+package com.nettenz.ebay.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * A physical connection owned by {@link ConnectionPool}.
+ * Callers never see this object directly: each borrow hands out a fresh handle whose
+ * {@code close()} returns the connection to the pool instead of closing the socket.
+ */
+final class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection raw;
+    private final StatementCache statementCache; // null when statement caching is disabled
+    private final long createdAt;
+
+    private volatile long lastReturnedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowSite;
+    private volatile boolean leakReported;
+
+    PooledConnection(ConnectionPool pool, Connection raw, StatementCache statementCache) {
+        this.pool = pool;
+        this.raw = raw;
+        this.statementCache = statementCache;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = createdAt;
+    }
+
+    Connection raw() {
+        return raw;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    long lastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long borrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable borrowSite() {
+        return borrowSite;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void markLeakReported() {
+        leakReported = true;
+    }
+
+    /**
+     * Records the lease and returns a handle that is only valid until it is closed.
+     */
+    Connection lease(boolean captureBorrowSite) {
+        borrowedAt = System.currentTimeMillis();
+        borrowSite = captureBorrowSite ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        return new Handle();
+    }
+
+    /**
+     * Restores the connection to a clean state before it goes back to the idle list.
+     * A failure here means the connection is unusable and must be discarded.
+     */
+    void reset() throws SQLException {
+        if (!raw.getAutoCommit()) {
+            raw.rollback();
+            raw.setAutoCommit(true);
+        }
+        raw.clearWarnings();
+        if (statementCache != null) {
+            statementCache.releaseAll();
+        }
+        lastReturnedAt = System.currentTimeMillis();
+        borrowSite = null;
+    }
+
+    void closeQuietly() {
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+        try {
+            raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * The borrower's view of the connection: a plain forwarding subclass rather than a reflective proxy, so
+     * calls on the hot path cost a virtual call. Using a handle after closing it is a caller bug and is not
+     * checked on every call; {@link #isClosed} reports it.
+     */
+    private final class Handle extends DelegatingConnection {
+
+        private boolean closed;
+
+        Handle() {
+            super(raw);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            return statementCache != null
+                    ? statementCache.prepare(raw, this, sql)
+                    : raw.prepareStatement(sql);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                pool.release(PooledConnection.this);
+            }
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return closed || raw.isClosed();
+        }
+
+        @Override
+        public String toString() {
+            return "PooledConnection[" + raw + (closed ? ", closed" : "") + "]";
+        }
+    }
+}
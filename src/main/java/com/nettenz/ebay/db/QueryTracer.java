@@ -0,0 +1,397 @@
+package com.nettenz.ebay.db;
+
+import com.nettenz.ebay.metrics.Counter;
+import com.nettenz.ebay.metrics.Metrics;
+import com.nettenz.ebay.security.RateLimiter;
+import com.nettenz.ebay.util.Env;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Traces the SQL run through {@link Db}: each connection handed out is wrapped so that every statement
+ * execution is measured (SQL text, bind count, rows returned or updated, elapsed time) and attributed
+ * to the servlet request it ran for.
+ *
+ * <ul>
+ *   <li>Executions slower than {@code DB_SLOW_QUERY_MS} are logged, at most
+ *       {@code DB_SLOW_QUERY_LOG_PER_MINUTE} a minute; the rest are only counted.</li>
+ *   <li>A request that runs more than {@code REQUEST_QUERY_BUDGET} statements or spends more than
+ *       {@code REQUEST_DB_TIME_BUDGET_MS} in them is logged with its most frequent statements
+ *       (once a minute per route), which catches N+1 patterns such as a {@code findById} per row.</li>
+ * </ul>
+ *
+ * <p>The request context is an inheritable thread local, so DAO calls forked onto virtual threads by
+ * {@code TaskScope} count towards the request that forked them. Elapsed time is the execute call, which
+ * with Connector/J's default fully buffered results includes fetching the rows.</p>
+ */
+public final class QueryTracer {
+
+    private static final Logger LOG = Logger.getLogger(QueryTracer.class.getName());
+
+    private static final boolean ENABLED = Env.getBoolean("DB_TRACE", true);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(Env.getInt("DB_SLOW_QUERY_MS", 250));
+    private static final int QUERY_BUDGET = Env.getInt("REQUEST_QUERY_BUDGET", 20);
+    private static final long DB_TIME_BUDGET_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("REQUEST_DB_TIME_BUDGET_MS", 500));
+
+    private static final int LOGGED_STATEMENTS = 5;
+    private static final int LOGGED_SQL_LENGTH = 200;
+
+    private static final RateLimiter SLOW_LOG_LIMIT =
+            new RateLimiter(10, Env.getInt("DB_SLOW_QUERY_LOG_PER_MINUTE", 60), 1);
+    private static final RateLimiter BUDGET_LOG_LIMIT = new RateLimiter(1, 1, 1_000);
+    private static final LongAdder SLOW_NOT_LOGGED = new LongAdder();
+
+    private static final Counter SLOW_QUERIES = Metrics.instance().counter("db_slow_queries_total",
+            "Statement executions slower than DB_SLOW_QUERY_MS");
+
+    private static final InheritableThreadLocal<RequestTrace> CURRENT = new InheritableThreadLocal<>();
+
+    private QueryTracer() {}
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Starts attributing this thread's statements (and those of threads it starts) to a request.
+     * Close the returned trace when the request is done to check it against the budget.
+     *
+     * @param tag   shown in the logs, e.g. {@code GET /products/42}
+     * @param route servlet mapping, used to label the budget counter and limit its log
+     */
+    public static RequestTrace begin(String tag, String route) {
+        RequestTrace trace = new RequestTrace(tag, route);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static Connection wrap(Connection connection) {
+        return ENABLED ? new TracedConnection(connection) : connection;
+    }
+
+    private static void finished(String sql, int binds, long rows, long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null && trace.closed) {
+            trace = null; // a pool thread that inherited the context of a request long gone
+        }
+        if (trace != null) {
+            trace.record(sql, nanos);
+        }
+        if (nanos < SLOW_NANOS) {
+            return;
+        }
+        SLOW_QUERIES.increment();
+        if (SLOW_LOG_LIMIT.tryAcquire("slow") != 0) {
+            SLOW_NOT_LOGGED.increment();
+            return;
+        }
+        long skipped = SLOW_NOT_LOGGED.sumThenReset();
+        LOG.warning(String.format("Slow query: %d ms, %s, %d bind(s) [%s]%s: %s",
+                TimeUnit.NANOSECONDS.toMillis(nanos), rows < 0 ? "rows unknown" : rows + " row(s)", binds,
+                trace != null ? trace.tag : Thread.currentThread().getName(),
+                skipped > 0 ? " (" + skipped + " more not logged)" : "", abbreviate(sql)));
+    }
+
+    private static String abbreviate(String sql) {
+        String flat = sql.strip().replaceAll("\\s+", " ");
+        return flat.length() <= LOGGED_SQL_LENGTH ? flat : flat.substring(0, LOGGED_SQL_LENGTH) + "...";
+    }
+
+    /**
+     * Statements run on behalf of one request.
+     */
+    public static final class RequestTrace implements AutoCloseable {
+
+        private final String tag;
+        private final String route;
+        private final AtomicInteger queries = new AtomicInteger();
+        private final LongAdder dbNanos = new LongAdder();
+        private final ConcurrentHashMap<String, AtomicInteger> bySql = new ConcurrentHashMap<>();
+        private volatile boolean closed;
+
+        RequestTrace(String tag, String route) {
+            this.tag = tag;
+            this.route = route;
+        }
+
+        public int queries() {
+            return queries.get();
+        }
+
+        public long dbMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(dbNanos.sum());
+        }
+
+        private void record(String sql, long nanos) {
+            queries.incrementAndGet();
+            dbNanos.add(nanos);
+            bySql.computeIfAbsent(sql, s -> new AtomicInteger()).incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+            int count = queries.get();
+            long nanos = dbNanos.sum();
+            if (count <= QUERY_BUDGET && nanos <= DB_TIME_BUDGET_NANOS) {
+                return;
+            }
+            Metrics.instance().counter("db_query_budget_exceeded_total",
+                    "Requests over REQUEST_QUERY_BUDGET statements or REQUEST_DB_TIME_BUDGET_MS of database time",
+                    "route", route).increment();
+            if (BUDGET_LOG_LIMIT.tryAcquire(route) != 0) {
+                return;
+            }
+            List<Map.Entry<String, AtomicInteger>> top = new ArrayList<>(bySql.entrySet());
+            top.sort((a, b) -> Integer.compare(b.getValue().get(), a.getValue().get()));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(LOGGED_STATEMENTS, top.size()); i++) {
+                sb.append("\n  ").append(top.get(i).getValue().get()).append("x ").append(abbreviate(top.get(i).getKey()));
+            }
+            LOG.warning(String.format("Request over its database budget: %s ran %d statement(s) (budget %d) "
+                            + "taking %d ms (budget %d ms). Most frequent:%s",
+                    tag, count, QUERY_BUDGET, TimeUnit.NANOSECONDS.toMillis(nanos),
+                    TimeUnit.NANOSECONDS.toMillis(DB_TIME_BUDGET_NANOS), sb));
+        }
+    }
+
+    private static final class TracedConnection extends DelegatingConnection {
+
+        TracedConnection(Connection delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            return new TracedStatement(delegate.prepareStatement(sql), this, sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+            return new TracedStatement(delegate.prepareStatement(sql, autoGeneratedKeys), this, sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+            return new TracedStatement(delegate.prepareStatement(sql, columnIndexes), this, sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+            return new TracedStatement(delegate.prepareStatement(sql, columnNames), this, sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+                throws SQLException {
+            return new TracedStatement(delegate.prepareStatement(sql, resultSetType, resultSetConcurrency), this, sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                                  int resultSetHoldability) throws SQLException {
+            return new TracedStatement(delegate.prepareStatement(sql, resultSetType, resultSetConcurrency,
+                    resultSetHoldability), this, sql);
+        }
+
+        @Override
+        public String toString() {
+            return "Traced" + delegate;
+        }
+    }
+
+    /**
+     * Only executions and {@code close} are intercepted; binding parameters goes straight to the driver.
+     * The bind count reported is the number of placeholders, times the rows of a batch.
+     *
+     * <p>Not thread-safe, like the statement it wraps.</p>
+     */
+    private static final class TracedStatement extends DelegatingPreparedStatement {
+
+        private final Connection connection;
+        private final String sql;
+        private final int placeholders;
+        private int batched;
+
+        // Query whose result set is still open: reported when it is closed, with the rows read
+        private long pendingNanos = -1;
+        private long pendingRows;
+
+        TracedStatement(PreparedStatement delegate, Connection connection, String sql) {
+            super(delegate);
+            this.connection = connection;
+            this.sql = sql;
+            this.placeholders = placeholders(sql);
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            finishPending();
+            long start = System.nanoTime();
+            ResultSet rs = delegate.executeQuery();
+            pendingNanos = System.nanoTime() - start;
+            pendingRows = 0;
+            return new TracedResultSet(rs, this);
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            finishPending();
+            long start = System.nanoTime();
+            int rows = delegate.executeUpdate();
+            finished(sql, placeholders, rows, System.nanoTime() - start);
+            return rows;
+        }
+
+        @Override
+        public long executeLargeUpdate() throws SQLException {
+            finishPending();
+            long start = System.nanoTime();
+            long rows = delegate.executeLargeUpdate();
+            finished(sql, placeholders, rows, System.nanoTime() - start);
+            return rows;
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            finishPending();
+            long start = System.nanoTime();
+            boolean result = delegate.execute();
+            finished(sql, placeholders, -1, System.nanoTime() - start); // the caller fetches the result itself
+            return result;
+        }
+
+        @Override
+        public void addBatch() throws SQLException {
+            delegate.addBatch();
+            batched++;
+        }
+
+        @Override
+        public void clearBatch() throws SQLException {
+            delegate.clearBatch();
+            batched = 0;
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            finishPending();
+            long start = System.nanoTime();
+            int[] counts = delegate.executeBatch();
+            long nanos = System.nanoTime() - start;
+            long rows = 0;
+            for (int n : counts) {
+                if (n < 0) {
+                    rows = -1; // SUCCESS_NO_INFO
+                    break;
+                }
+                rows += n;
+            }
+            finished(sql, placeholders * batched, rows, nanos);
+            batched = 0;
+            return counts;
+        }
+
+        @Override
+        public long[] executeLargeBatch() throws SQLException {
+            finishPending();
+            long start = System.nanoTime();
+            long[] counts = delegate.executeLargeBatch();
+            long nanos = System.nanoTime() - start;
+            long rows = 0;
+            for (long n : counts) {
+                if (n < 0) {
+                    rows = -1;
+                    break;
+                }
+                rows += n;
+            }
+            finished(sql, placeholders * batched, rows, nanos);
+            batched = 0;
+            return counts;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            finishPending();
+            delegate.close();
+        }
+
+        @Override
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public String toString() {
+            return "Traced" + delegate;
+        }
+
+        void finishPending() {
+            if (pendingNanos >= 0) {
+                long nanos = pendingNanos;
+                pendingNanos = -1;
+                finished(sql, placeholders, pendingRows, nanos);
+            }
+        }
+
+        private static int placeholders(String sql) {
+            int n = 0;
+            for (int i = 0; i < sql.length(); i++) {
+                if (sql.charAt(i) == '?') {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Counts the rows read; column getters go straight to the driver.
+     */
+    private static final class TracedResultSet extends DelegatingResultSet {
+
+        private final TracedStatement statement;
+
+        TracedResultSet(ResultSet delegate, TracedStatement statement) {
+            super(delegate);
+            this.statement = statement;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            boolean more = delegate.next();
+            if (more) {
+                statement.pendingRows++;
+            }
+            return more;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            statement.finishPending();
+            delegate.close();
+        }
+
+        @Override
+        public Statement getStatement() {
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.nettenz.ebay.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements, keyed by SQL text, belonging to one {@link PooledConnection}.
+ *
+ * <p>With {@code useServerPrepStmts=true} every physical prepare is a {@code COM_STMT_PREPARE} round trip
+ * in which MySQL parses and plans the query. Keeping the statement open across leases means a cache hit
+ * only costs the execute. Closing the statement handed to the caller just returns it to the cache.</p>
+ *
+ * <p>Not thread-safe: a pooled connection is only ever used by the thread that borrowed it.</p>
+ */
+final class StatementCache {
+
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, Entry> entries;
+
+    StatementCache(int maxSize, Counters counters) {
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached statement for {@code sql}, preparing it on {@code raw} on a miss.
+     * If the cached statement is already open by the current lease (nested use of the same SQL),
+     * an uncached statement is returned instead.
+     */
+    PreparedStatement prepare(Connection raw, Connection handle, String sql) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null) {
+            if (entry.inUse) {
+                counters.misses.increment();
+                return raw.prepareStatement(sql);
+            }
+            counters.hits.increment();
+            entry.inUse = true;
+            return entry.newHandle(handle);
+        }
+
+        counters.misses.increment();
+        entry = new Entry(raw.prepareStatement(sql));
+        entries.put(sql, entry);
+        evictOverflow();
+        entry.inUse = true;
+        return entry.newHandle(handle);
+    }
+
+    /**
+     * Marks every statement as free. Called when the owning connection goes back to the pool,
+     * so statements the previous borrower forgot to close are not stranded.
+     */
+    void releaseAll() {
+        for (Entry entry : entries.values()) {
+            if (entry.inUse) {
+                entry.current.closed = true;
+                entry.inUse = false;
+            }
+        }
+    }
+
+    void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.closeQuietly();
+        }
+        entries.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (eldest.inUse) {
+                continue;
+            }
+            it.remove();
+            eldest.closeQuietly();
+            counters.evictions.increment();
+        }
+    }
+
+    /**
+     * Pool-wide hit/miss/eviction counters shared by every connection's cache.
+     */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private static final class Entry {
+
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private Handle current;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement newHandle(Connection connectionHandle) {
+            current = new Handle(connectionHandle);
+            return current;
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        /**
+         * What the borrower holds: forwards to the cached statement, and on {@code close()} resets it and
+         * hands it back to the cache.
+         */
+        private final class Handle extends DelegatingPreparedStatement {
+
+            private final Connection connectionHandle;
+            private boolean closed;
+
+            Handle(Connection connectionHandle) {
+                super(statement);
+                this.connectionHandle = connectionHandle;
+            }
+
+            @Override
+            public void close() throws SQLException {
+                if (!closed) {
+                    closed = true;
+                    statement.clearParameters();
+                    statement.clearBatch();
+                    inUse = false;
+                }
+            }
+
+            @Override
+            public boolean isClosed() throws SQLException {
+                return closed || statement.isClosed();
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connectionHandle;
+            }
+
+            @Override
+            public String toString() {
+                return "CachedStatement[" + statement + (closed ? ", closed" : "") + "]";
+            }
+        }
+    }
+}
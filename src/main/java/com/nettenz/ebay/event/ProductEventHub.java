@@ -0,0 +1,255 @@
+package com.nettenz.ebay.event;
+
+import com.nettenz.ebay.util.Env;
+import com.nettenz.ebay.util.Json;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans out live auction updates to Server-Sent Events subscribers, grouped by product.
+ *
+ * <p>Each subscriber is an async request writing through non-blocking I/O ({@link WriteListener}),
+ * so an idle connection holds no thread. Publishing only appends to the subscriber's small queue and
+ * writes as much as the socket accepts without blocking; a subscriber whose queue overflows is too slow
+ * to keep up and is disconnected (browsers reconnect on their own and reload the page state).</p>
+ */
+public final class ProductEventHub {
+
+    private static final ProductEventHub INSTANCE = new ProductEventHub(
+            Env.getInt("SSE_MAX_SUBSCRIBERS", 10_000),
+            Env.getInt("SSE_MAX_QUEUED_EVENTS", 32));
+
+    private static final long STREAM_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_PERIOD_SECONDS = 20;
+    private static final byte[] PREAMBLE = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final int maxSubscribers;
+    private final int maxQueuedEvents;
+    private final ConcurrentHashMap<Long, Set<Subscriber>> byProduct = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final ScheduledExecutorService heartbeat;
+
+    ProductEventHub(int maxSubscribers, int maxQueuedEvents) {
+        this.maxSubscribers = maxSubscribers;
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats,
+                HEARTBEAT_PERIOD_SECONDS, HEARTBEAT_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static ProductEventHub instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Turns the request into an event stream for {@code productId}.
+     * The request must be async-supported along its whole filter chain.
+     *
+     * @return false if this node already serves the maximum number of streams
+     */
+    public boolean subscribe(long productId, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setHeader("X-Accel-Buffering", "no"); // keep reverse proxies from buffering the stream
+
+        AsyncContext async = req.startAsync();
+        async.setTimeout(STREAM_TIMEOUT_MS);
+
+        Subscriber subscriber = new Subscriber(productId, async, resp.getOutputStream());
+        async.addListener(subscriber);
+        byProduct.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriber.enqueue(PREAMBLE);
+        subscriber.out.setWriteListener(subscriber);
+        return true;
+    }
+
+    /**
+     * Pushes a new visible bid to everyone watching the product. {@code bidderName} is null for a bid
+     * the bid engine placed automatically on the high bidder's behalf.
+     */
+    public void publishBid(long productId, BigDecimal currentPrice, int bidCount, String bidderName, BigDecimal amount) {
+        Set<Subscriber> subscribers = byProduct.get(productId);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        String data = "{\"productId\":" + productId
+                + ",\"currentPrice\":\"" + currentPrice.toPlainString() + "\""
+                + ",\"bidCount\":" + bidCount
+                + ",\"amount\":\"" + amount.toPlainString() + "\""
+                + ",\"bidder\":" + Json.quote(bidderName)
+                + ",\"at\":" + System.currentTimeMillis() + "}";
+        byte[] frame = ("event: bid\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+        for (Subscriber s : subscribers) {
+            s.enqueue(frame);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Ends every open stream and stops the heartbeat. Called when the web application is undeployed.
+     */
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (Set<Subscriber> subscribers : byProduct.values()) {
+            for (Subscriber s : subscribers) {
+                s.close();
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Set<Subscriber> subscribers : byProduct.values()) {
+            for (Subscriber s : subscribers) {
+                s.enqueue(HEARTBEAT);
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        Set<Subscriber> subscribers = byProduct.get(subscriber.productId);
+        if (subscribers != null && subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+            if (subscribers.isEmpty()) {
+                byProduct.remove(subscriber.productId, subscribers);
+            }
+        }
+    }
+
+    private final class Subscriber implements WriteListener, AsyncListener {
+
+        private final long productId;
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final ArrayDeque<byte[]> queue = new ArrayDeque<>(); // guarded by this
+        private boolean writeListenerReady;                          // guarded by this
+        private boolean closed;                                      // guarded by this
+
+        Subscriber(long productId, AsyncContext async, ServletOutputStream out) {
+            this.productId = productId;
+            this.async = async;
+            this.out = out;
+        }
+
+        void enqueue(byte[] frame) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= maxQueuedEvents) {
+                    dropped.increment();
+                    closeLocked();
+                    return;
+                }
+                queue.add(frame);
+            }
+            drain();
+        }
+
+        /**
+         * Writes queued frames for as long as the socket accepts them without blocking.
+         * When it doesn't, the container calls {@link #onWritePossible()} once it drains.
+         */
+        private synchronized void drain() {
+            if (closed || !writeListenerReady) {
+                return;
+            }
+            try {
+                while (out.isReady()) {
+                    byte[] frame = queue.poll();
+                    if (frame == null) {
+                        out.flush();
+                        return;
+                    }
+                    out.write(frame);
+                }
+            } catch (IOException | IllegalStateException e) {
+                closeLocked();
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            synchronized (this) {
+                writeListenerReady = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        synchronized void close() {
+            closeLocked();
+        }
+
+        private void closeLocked() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            remove(this);
+            try {
+                async.complete();
+            } catch (IllegalStateException ignored) {
+                // Already completed by the container (client went away or timed out).
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {}
+    }
+}
@@ -1,15 +1,16 @@
 package com.nettenz.ebay.filter;
 
+import com.nettenz.ebay.security.AuthSession;
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
-@WebFilter("/*")
+@WebFilter(filterName = "AuthFilter", urlPatterns = "/*", asyncSupported = true)
 public class AuthFilter implements Filter {
 
     // Paths that don't require authentication
@@ -17,9 +18,19 @@ public class AuthFilter implements Filter {
             "/login",
             "/register",
             "/logout",
-            "/products"
+            "/products",
+            "/search",
+            "/search/suggest",
+            "/api/v1/products",
+            "/metrics" // scrapers cannot log in; MetricsServlet checks METRICS_TOKEN
     );
 
+    // Static assets, needed by the public pages (including the login page itself),
+    // and the read-only product API (ProductApiServlet only answers GET)
+    private static final List<String> PUBLIC_PREFIXES = List.of("/css/", "/js/", "/api/v1/products/");
+
+    private final AuthSession authSession = AuthSession.instance();
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -28,32 +39,40 @@ public class AuthFilter implements Filter {
         HttpServletResponse resp = (HttpServletResponse) response;
         String path = req.getRequestURI().substring(req.getContextPath().length());
 
-        // 1. Allow root, index.jsp, and explicit public paths
-        if (path.equals("/") || path.equals("/index.jsp") || PUBLIC_PATHS.contains(path)) {
+        // 1. Identify the user (session or signed cookie), so public pages can show who is logged in
+        authSession.load(req, resp);
+
+        // 2. Allow root, index.jsp, and explicit public paths
+        if (path.equals("/") || path.equals("/index.jsp") || PUBLIC_PATHS.contains(path)
+                || PUBLIC_PREFIXES.stream().anyMatch(path::startsWith)) {
             chain.doFilter(request, response);
             return;
         }
 
-        // 2. Check Session
-        HttpSession session = req.getSession(false);
-        boolean loggedIn = (session != null && session.getAttribute("auth.userId") != null);
+        // 3. Check Login
+        boolean loggedIn = req.getAttribute(AuthSession.USER_ID) != null;
 
         if (!loggedIn) {
+            // API clients cannot follow a redirect to an HTML login form
+            if (path.startsWith("/api/")) {
+                resp.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Authentication required");
+                return;
+            }
             // Redirect to login with the current path as returnTo
             resp.sendRedirect(req.getContextPath() + "/login?returnTo=" + path);
             return;
         }
 
-        // 3. Role-based Authorization for Admin paths
+        // 4. Role-based Authorization for Admin paths
         if (path.startsWith("/admin/")) {
-            String role = (String) session.getAttribute("auth.role");
+            String role = (String) req.getAttribute(AuthSession.ROLE);
             if (!"ADMIN".equals(role)) {
                 resp.sendError(HttpServletResponse.SC_FORBIDDEN, "Access Denied: Admin role required.");
                 return;
             }
         }
 
-        // 4. Authenticated access to everything else (like /products/*)
+        // 5. Authenticated access to everything else (like /products/*)
         chain.doFilter(request, response);
     }
 
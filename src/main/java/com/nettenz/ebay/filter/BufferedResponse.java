@@ -0,0 +1,150 @@
+package com.nettenz.ebay.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Collects the body written by the rest of the filter chain in memory instead of sending it.
+ *
+ * <p>Headers still go straight to the wrapped response. Anything that makes the body unsuitable for
+ * sharing with other requests (a status other than 200, an error or redirect, a cookie) marks the
+ * response as not cacheable; errors and redirects are sent immediately, and {@link #passedThrough()}
+ * then tells the caller there is nothing left to send.</p>
+ */
+final class BufferedResponse extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+    private ServletOutputStream stream;
+    private PrintWriter writer;
+    private int status = SC_OK;
+    private boolean cacheable = true;
+    private boolean passedThrough;
+
+    BufferedResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * The collected body, with any characters still buffered in the writer flushed.
+     */
+    byte[] body() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return buffer.toByteArray();
+    }
+
+    boolean cacheable() {
+        return cacheable && status == SC_OK && !passedThrough;
+    }
+
+    boolean passedThrough() {
+        return passedThrough;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (stream == null) {
+            stream = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    buffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    buffer.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    throw new UnsupportedOperationException("Buffered responses are written synchronously");
+                }
+            };
+        }
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (stream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(buffer, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+        super.setStatus(sc);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        passedThrough = true;
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        passedThrough = true;
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        passedThrough = true;
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        cacheable = false;
+        super.addCookie(cookie);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // The caller sets the length of what it finally sends
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void flushBuffer() {
+        // Nothing reaches the client until the caller decides what to send
+    }
+
+    @Override
+    public void resetBuffer() {
+        buffer.reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        buffer.reset();
+        status = SC_OK;
+    }
+}
@@ -0,0 +1,112 @@
+package com.nettenz.ebay.filter;
+
+import com.nettenz.ebay.metrics.Counter;
+import com.nettenz.ebay.metrics.Histogram;
+import com.nettenz.ebay.metrics.Metrics;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every request by route and every forward to a JSP by page, into {@link Metrics}.
+ *
+ * <p>The route is the servlet mapping that matched ({@code /products/*}, {@code /bid}, ...), never the raw
+ * path, so the number of series stays bounded. Requests that go async (live update streams) are not timed.
+ * Runs first, so the time includes the other filters; the order is fixed in {@code web.xml}.</p>
+ */
+@WebFilter(filterName = "MetricsFilter", urlPatterns = "/*",
+        dispatcherTypes = {DispatcherType.REQUEST, DispatcherType.FORWARD}, asyncSupported = true)
+public class MetricsFilter implements Filter {
+
+    private final Metrics metrics = Metrics.instance();
+    private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> pages = new ConcurrentHashMap<>();
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+
+        if (req.getDispatcherType() == DispatcherType.FORWARD) {
+            String page = req.getServletPath();
+            if (!page.endsWith(".jsp")) {
+                chain.doFilter(request, response);
+                return;
+            }
+            Histogram render = pages.get(page);
+            if (render == null) {
+                render = pages.computeIfAbsent(page, p -> metrics.histogram("jsp_render_duration_seconds",
+                        "Time to render a JSP forwarded to by a servlet", "page", p));
+            }
+            long start = System.nanoTime();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                render.recordSince(start);
+            }
+            return;
+        }
+
+        String pattern = req.getHttpServletMapping().getPattern();
+        Route route = routes.get(pattern);
+        if (route == null) {
+            route = routes.computeIfAbsent(pattern, p -> new Route(metrics, p));
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!req.isAsyncStarted()) {
+                route.forMethod(req.getMethod()).recordSince(start);
+                if (failed || resp.getStatus() >= 500) {
+                    route.errors.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    private static final class Route {
+
+        private final Metrics metrics;
+        private final String route;
+        // Registered on first use; a race registers the same histogram twice, which is harmless
+        private volatile Histogram get;
+        private volatile Histogram post;
+        private volatile Histogram other;
+        final Counter errors;
+
+        Route(Metrics metrics, String pattern) {
+            this.metrics = metrics;
+            this.route = pattern.isEmpty() ? "/" : pattern;
+            this.errors = metrics.counter("http_request_errors_total",
+                    "Requests that failed with an exception or a 5xx status", "route", route);
+        }
+
+        Histogram forMethod(String method) {
+            return switch (method) {
+                case "GET" -> get != null ? get : (get = register("GET"));
+                case "POST" -> post != null ? post : (post = register("POST"));
+                default -> other != null ? other : (other = register("OTHER"));
+            };
+        }
+
+        private Histogram register(String method) {
+            return metrics.histogram("http_request_duration_seconds",
+                    "Time to handle a request, by servlet mapping and method", "route", route, "method", method);
+        }
+    }
+}
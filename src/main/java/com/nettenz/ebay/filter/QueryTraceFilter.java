@@ -0,0 +1,39 @@
+package com.nettenz.ebay.filter;
+
+import com.nettenz.ebay.db.QueryTracer;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+
+/**
+ * Attributes the SQL each request runs to it, so {@link QueryTracer} can tag slow queries with the request
+ * and flag requests over their query budget. Runs right after {@link MetricsFilter}; the order is fixed in
+ * {@code web.xml}.
+ */
+@WebFilter(filterName = "QueryTraceFilter", urlPatterns = "/*", asyncSupported = true)
+public class QueryTraceFilter implements Filter {
+
+    @Override
+    @SuppressWarnings("try")
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        if (!QueryTracer.enabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest req = (HttpServletRequest) request;
+        try (QueryTracer.RequestTrace trace = QueryTracer.begin(req.getMethod() + " " + req.getRequestURI(),
+                req.getHttpServletMapping().getPattern())) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+}
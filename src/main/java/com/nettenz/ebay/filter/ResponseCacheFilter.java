@@ -0,0 +1,98 @@
+package com.nettenz.ebay.filter;
+
+import com.nettenz.ebay.cache.CatalogVersion;
+import com.nettenz.ebay.cache.ResponseCache;
+import com.nettenz.ebay.security.AuthSession;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Serves public catalog pages from {@link ResponseCache} and answers revalidations with 304.
+ *
+ * <p>Pages are keyed by path, query string and the logged-in user (the navigation bar differs per user)
+ * and stay valid while {@link CatalogVersion} does not change. The ETag combines that version with a
+ * checksum of the body, so a browser revalidating an unchanged page gets a 304 without the page being
+ * rendered again. Must run after {@link AuthFilter}; the order is fixed in {@code web.xml}.</p>
+ */
+@WebFilter(filterName = "ResponseCacheFilter", urlPatterns = {"/products", "/search"})
+public class ResponseCacheFilter implements Filter {
+
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    private final ResponseCache cache = ResponseCache.instance();
+    private final CatalogVersion catalogVersion = CatalogVersion.instance();
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        if (!"GET".equals(req.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Read the version before rendering: a write during rendering then makes the page stale, not lost
+        long version = catalogVersion.current();
+        String key = key(req);
+        ResponseCache.Page page = cache.get(key, version);
+        if (page == null) {
+            BufferedResponse buffered = new BufferedResponse(resp);
+            chain.doFilter(request, buffered);
+            if (buffered.passedThrough()) {
+                return;
+            }
+            byte[] body = buffered.body();
+            page = new ResponseCache.Page(version, etag(version, body), buffered.getContentType(), body);
+            if (buffered.cacheable()) {
+                cache.put(key, page);
+            } else {
+                send(resp, page.contentType(), body);
+                return;
+            }
+        }
+
+        resp.setHeader("ETag", page.etag());
+        resp.setHeader("Cache-Control", CACHE_CONTROL);
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        // contains() also accepts the tag in a list or weakened to W/"..." by a compressing proxy
+        if (ifNoneMatch != null && ifNoneMatch.contains(page.etag())) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        send(resp, page.contentType(), page.body());
+    }
+
+    private static String key(HttpServletRequest req) {
+        Object userId = req.getAttribute(AuthSession.USER_ID);
+        String query = req.getQueryString();
+        return (userId == null ? "-" : userId.toString()) + " " + req.getRequestURI()
+                + (query == null ? "" : "?" + query);
+    }
+
+    private static String etag(long version, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return "\"" + Long.toHexString(version) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private static void send(HttpServletResponse resp, String contentType, byte[] body) throws IOException {
+        if (contentType != null) {
+            resp.setContentType(contentType);
+        }
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+}
@@ -0,0 +1,137 @@
+package com.nettenz.ebay.filter;
+
+import com.nettenz.ebay.assets.AssetManifest;
+import com.nettenz.ebay.servlet.FileResponses;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves fingerprinted static assets, picking the precompressed encoding the client accepts.
+ *
+ * <p>Brotli or gzip files produced at build time are sent as they are, with {@code Content-Encoding}
+ * and {@code Vary: Accept-Encoding}; nothing is compressed per request. Since a fingerprinted name never
+ * changes content, responses are cacheable for a year. File metadata is read once at startup. Other
+ * paths (and everything when the webapp is not unpacked on disk) fall through to the default servlet.</p>
+ */
+@WebFilter(filterName = "StaticAssetFilter", urlPatterns = {"/css/*", "/js/*"})
+public class StaticAssetFilter implements Filter {
+
+    private Map<String, Asset> assets = Map.of();
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        ServletContext context = filterConfig.getServletContext();
+        Map<String, Asset> found = new HashMap<>();
+        for (String path : AssetManifest.fingerprintedPaths()) {
+            String real = context.getRealPath("/" + path);
+            if (real == null) {
+                continue;
+            }
+            Path file = Path.of(real);
+            Encoded identity = Encoded.of(file, null);
+            if (identity == null) {
+                continue;
+            }
+            String contentType = context.getMimeType(path);
+            if (contentType != null && (contentType.startsWith("text/") || contentType.contains("javascript"))) {
+                contentType += ";charset=UTF-8";
+            }
+            found.put("/" + path, new Asset(contentType,
+                    Encoded.of(file.resolveSibling(file.getFileName() + ".br"), "br"),
+                    Encoded.of(file.resolveSibling(file.getFileName() + ".gz"), "gzip"),
+                    identity));
+        }
+        assets = Map.copyOf(found);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        String method = req.getMethod();
+        Asset asset = assets.get(req.getRequestURI().substring(req.getContextPath().length()));
+        if (asset == null || !("GET".equals(method) || "HEAD".equals(method))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        Encoded encoded = asset.identity();
+        if (asset.brotli() != null && accepts(acceptEncoding, "br")) {
+            encoded = asset.brotli();
+        } else if (asset.gzip() != null && accepts(acceptEncoding, "gzip")) {
+            encoded = asset.gzip();
+        }
+
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (encoded.encoding() != null) {
+            resp.setHeader("Content-Encoding", encoded.encoding());
+        }
+        FileResponses.send(req, resp, encoded.file(), encoded.length(), encoded.lastModified(),
+                asset.contentType(), encoded.etag(), FileResponses.CACHE_IMMUTABLE, "GET".equals(method));
+    }
+
+    /**
+     * True if {@code coding} is listed in the Accept-Encoding header without {@code q=0}.
+     */
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            if (!params[0].trim().equalsIgnoreCase(coding)) {
+                continue;
+            }
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim().toLowerCase(Locale.ROOT);
+                if (p.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(p.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {}
+
+    private record Asset(String contentType, Encoded brotli, Encoded gzip, Encoded identity) {}
+
+    /**
+     * One encoding of an asset on disk; {@code encoding} is null for the uncompressed file.
+     */
+    private record Encoded(Path file, String encoding, long length, long lastModified, String etag) {
+
+        static Encoded of(Path file, String encoding) {
+            try {
+                if (!Files.isRegularFile(file)) {
+                    return null;
+                }
+                long length = Files.size(file);
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                // The name already carries the content hash; the suffix keeps each encoding's tag distinct
+                String etag = "\"" + file.getFileName() + "\"";
+                return new Encoded(file, encoding, length, lastModified, etag);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.nettenz.ebay.image;
+
+import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.util.Env;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates the resized {@link ImageVariant}s of uploaded images in the background.
+ *
+ * <p>Work runs on a small fixed pool with a bounded queue, so a burst of uploads cannot take CPU or
+ * memory away from request threads; when the queue is full the upload is skipped and keeps being
+ * served at full size. Large images are decoded with source subsampling, so a 10 MB photo is never
+ * expanded to its full resolution in memory. Once the variants are on disk they are recorded on the
+ * product, and pages start referencing them.</p>
+ */
+public final class ImagePipeline {
+
+    private static final Logger LOG = Logger.getLogger(ImagePipeline.class.getName());
+
+    private static final ImagePipeline INSTANCE = new ImagePipeline(
+            new ProductDao(),
+            Env.getInt("IMAGE_WORKERS", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Env.getInt("IMAGE_QUEUE_CAPACITY", 200));
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final ProductDao productDao;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder processNanos = new LongAdder();
+
+    ImagePipeline(ProductDao productDao, int workers, int queueCapacity) {
+        this.productDao = productDao;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "image-worker-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+    }
+
+    public static ImagePipeline instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues variant generation for a product's freshly uploaded image.
+     *
+     * @return false if the queue is full or the pipeline has been shut down
+     */
+    public boolean submit(long productId, Path original) {
+        try {
+            executor.execute(() -> process(productId, original));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            LOG.warning("Image queue full; product " + productId + " will be served at original size");
+            return false;
+        }
+    }
+
+    public Stats stats() {
+        long p = processed.sum();
+        return new Stats(
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                p,
+                failed.sum(),
+                rejected.sum(),
+                p == 0 ? 0 : processNanos.sum() / 1_000_000.0 / p);
+    }
+
+    /**
+     * Stops accepting work and gives queued images a few seconds to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(long productId, Path original) {
+        long start = System.nanoTime();
+        try {
+            if (Files.exists(variantPath(original, ImageVariant.DETAIL)) && Files.exists(variantPath(original, ImageVariant.CARD))) {
+                // Identical image uploaded before: the blob store deduplicated it, and its variants with it.
+                productDao.setImageVariants(productId, ImageVariant.CARD.param() + "," + ImageVariant.DETAIL.param());
+                return;
+            }
+            BufferedImage source = read(original, ImageVariant.DETAIL.maxDimension() * 2);
+            // Each variant is scaled from the previous, larger one, which is cheaper than going back to the source.
+            BufferedImage detail = scaleToFit(source, ImageVariant.DETAIL.maxDimension());
+            write(detail, variantPath(original, ImageVariant.DETAIL));
+            BufferedImage card = scaleToFit(detail, ImageVariant.CARD.maxDimension());
+            write(card, variantPath(original, ImageVariant.CARD));
+
+            productDao.setImageVariants(productId, ImageVariant.CARD.param() + "," + ImageVariant.DETAIL.param());
+            processed.increment();
+            processNanos.add(System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            LOG.log(Level.WARNING, "Could not generate image variants for product " + productId, e);
+        }
+    }
+
+    private static Path variantPath(Path original, ImageVariant variant) {
+        return original.resolveSibling(variant.fileName(original.getFileName().toString()));
+    }
+
+    /**
+     * Decodes the first image in the file, subsampled so that its longest side is not much more
+     * than {@code targetDimension}.
+     */
+    private static BufferedImage read(Path file, int targetDimension) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + file.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / targetDimension);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales down to fit within {@code maxDimension} (never up), halving in steps first so that
+     * bilinear filtering does not skip pixels. The result is always opaque RGB, as JPEG needs.
+     */
+    private static BufferedImage scaleToFit(BufferedImage src, int maxDimension) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(w, h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+
+        BufferedImage current = src;
+        while (current.getWidth() / 2 >= targetW && current.getHeight() / 2 >= targetH) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetW || current.getHeight() != targetH || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, targetW, targetH);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage src, int width, int height) {
+        BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE); // background for transparent PNGs/GIFs
+            g.fillRect(0, 0, width, height);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    /**
+     * Encodes as progressive JPEG into a temporary file and moves it into place, so the image servlet
+     * never sees a partly written variant. The temporary name is unique: two products sharing a
+     * deduplicated blob can be processed at the same time, and each then renames a complete file.
+     */
+    private static void write(BufferedImage image, Path target) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public record Stats(
+            int queueDepth,
+            int active,
+            long processed,
+            long failed,
+            long rejected,
+            double avgProcessMillis
+    ) {}
+}
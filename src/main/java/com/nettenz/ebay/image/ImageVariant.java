@@ -0,0 +1,57 @@
+package com.nettenz.ebay.image;
+
+import java.util.Locale;
+
+/**
+ * Renditions of an uploaded product image. Resized variants are JPEG files stored next to the
+ * original, named after it, so the original's name is all a page needs to reference any of them.
+ */
+public enum ImageVariant {
+
+    /** Listing and search grid cards. */
+    CARD(480),
+    /** Product detail page. */
+    DETAIL(1200),
+    /** The file as uploaded. */
+    ORIGINAL(0);
+
+    private final int maxDimension;
+
+    ImageVariant(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Longest side of the variant in pixels (0 for the original).
+     */
+    public int maxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * The {@code size} parameter value and the name recorded in {@code products.image_variants}.
+     */
+    public String param() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String fileName(String originalName) {
+        return this == ORIGINAL ? originalName : originalName + "." + param() + ".jpg";
+    }
+
+    /**
+     * @return the variant for a {@code size} parameter; {@link #ORIGINAL} when absent
+     * @throws IllegalArgumentException for an unknown size
+     */
+    public static ImageVariant fromParam(String size) {
+        if (size == null || size.isBlank()) {
+            return ORIGINAL;
+        }
+        for (ImageVariant v : values()) {
+            if (v.param().equals(size)) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image size: " + size);
+    }
+}
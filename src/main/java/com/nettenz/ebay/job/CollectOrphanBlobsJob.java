@@ -0,0 +1,66 @@
+package com.nettenz.ebay.job;
+
+import com.nettenz.ebay.dao.BlobDao;
+import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.storage.BlobStore;
+import com.nettenz.ebay.util.Env;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes uploaded blobs that no product references, such as images from listings that failed
+ * validation after the upload was stored.
+ *
+ * <p>A blob is only collected once it has gone unreferenced for {@code BLOB_GC_GRACE_HOURS}
+ * (default 24) since it was last uploaded, which covers the gap between storing an upload and inserting
+ * its product. Run periodically (e.g. from cron) from an exploded WAR with the same {@code DB_*} and
+ * {@code IMAGE_STORE_DIR} environment as the app:</p>
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.nettenz.ebay.job.CollectOrphanBlobsJob
+ * </pre>
+ */
+public final class CollectOrphanBlobsJob {
+
+    private static final int BATCH_SIZE = 500;
+
+    private CollectOrphanBlobsJob() {}
+
+    public static void main(String[] args) throws IOException {
+        long graceMillis = TimeUnit.HOURS.toMillis(Env.getLong("BLOB_GC_GRACE_HOURS", 24));
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - graceMillis);
+        BlobDao blobDao = new BlobDao();
+        BlobStore blobStore = BlobStore.instance();
+
+        int deleted = 0;
+        try {
+            while (true) {
+                List<String> keys = blobDao.findUnreferenced(cutoff, BATCH_SIZE);
+                for (String key : keys) {
+                    // Files are set aside before the row goes, so an identical upload in between stores a fresh
+                    // copy. If the row was re-uploaded or referenced meanwhile, the files are put back.
+                    BlobStore.Removal removal = blobStore.beginDelete(key);
+                    boolean rowDeleted = false;
+                    try {
+                        rowDeleted = blobDao.deleteIfUnreferenced(key, cutoff);
+                    } finally {
+                        if (rowDeleted) {
+                            removal.commit();
+                            deleted++;
+                        } else {
+                            removal.rollback();
+                        }
+                    }
+                }
+                if (keys.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            System.out.println("Collected " + deleted + " unreferenced blob(s)");
+        } finally {
+            Db.shutdown();
+        }
+    }
+}
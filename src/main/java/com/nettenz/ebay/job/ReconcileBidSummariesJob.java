@@ -0,0 +1,28 @@
+package com.nettenz.ebay.job;
+
+import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.db.Db;
+
+/**
+ * One-off job that backfills or repairs {@code products.current_price}, {@code bid_count} and
+ * {@code high_bidder_user_id} from the {@code bids} table. A product whose high bidder changes loses its
+ * stored {@code high_bidder_max}, which belonged to the previous leader.
+ *
+ * <p>Run from an exploded WAR with the same {@code DB_*} environment as the app:</p>
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.nettenz.ebay.job.ReconcileBidSummariesJob
+ * </pre>
+ */
+public final class ReconcileBidSummariesJob {
+
+    private ReconcileBidSummariesJob() {}
+
+    public static void main(String[] args) {
+        try {
+            int corrected = new ProductDao().reconcileBidSummaries();
+            System.out.println("Reconciled bid summaries: " + corrected + " product(s) corrected");
+        } finally {
+            Db.shutdown();
+        }
+    }
+}
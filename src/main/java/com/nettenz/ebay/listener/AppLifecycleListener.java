@@ -0,0 +1,42 @@
+package com.nettenz.ebay.listener;
+
+import com.nettenz.ebay.assets.AssetManifest;
+import com.nettenz.ebay.auction.AuctionCloser;
+import com.nettenz.ebay.auction.BidEngine;
+import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.event.ProductEventHub;
+import com.nettenz.ebay.image.ImagePipeline;
+import com.nettenz.ebay.security.PasswordExecutor;
+import com.nettenz.ebay.search.SearchIndex;
+import com.nettenz.ebay.stats.DashboardCounters;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Starts and stops application-wide resources with the web application.
+ */
+@WebListener
+public class AppLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        AssetManifest.load(sce.getServletContext());
+        BidEngine.instance().rebuildQuietly();
+        AuctionCloser.instance().start();
+        DashboardCounters.instance().start();
+        SearchIndex.instance().start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ImagePipeline.instance().shutdown();
+        PasswordExecutor.instance().shutdown();
+        SearchIndex.instance().shutdown();
+        DashboardCounters.instance().shutdown();
+        ProductEventHub.instance().shutdown();
+        AuctionCloser.instance().shutdown();
+        BidEngine.instance().shutdown();
+        Db.shutdown();
+    }
+}
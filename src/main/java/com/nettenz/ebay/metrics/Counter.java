@@ -0,0 +1,26 @@
+package com.nettenz.ebay.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter. Backed by a {@link LongAdder}, so heavily contended increments spread over
+ * per-CPU cells instead of fighting over one cache line.
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long value() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,74 @@
+package com.nettenz.ebay.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed buckets from 100 µs to 10 s, exported as a Prometheus histogram in seconds.
+ *
+ * <p>Recording is lock-free and allocation-free: a binary search over the bucket bounds and two atomic
+ * increments. Buckets are read one at a time when scraped, so a scrape racing with recordings may see
+ * {@code _sum} one observation ahead of or behind the buckets; bucket counts and {@code _count} always agree.</p>
+ */
+public final class Histogram {
+
+    private static final long[] BOUNDS_NANOS = {
+            100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L,
+            10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L,
+            10_000_000_000L
+    };
+
+    static final String[] BOUND_LABELS = {
+            "0.0001", "0.00025", "0.0005",
+            "0.001", "0.0025", "0.005",
+            "0.01", "0.025", "0.05",
+            "0.1", "0.25", "0.5",
+            "1", "2.5", "5",
+            "10"
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_NANOS.length + 1); // last is +Inf
+    private final AtomicLong sumNanos = new AtomicLong();
+
+    Histogram() {}
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int i = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        buckets.incrementAndGet(i >= 0 ? i : -i - 1); // an exact bound falls in its own (le) bucket
+        sumNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            n += buckets.get(i);
+        }
+        return n;
+    }
+
+    void writeTo(PrometheusWriter out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            cumulative += buckets.get(i);
+            out.sample(name + "_bucket", PrometheusWriter.join(labels, "le=\"" + BOUND_LABELS[i] + "\""), cumulative);
+        }
+        cumulative += buckets.get(BOUNDS_NANOS.length);
+        out.sample(name + "_bucket", PrometheusWriter.join(labels, "le=\"+Inf\""), cumulative);
+        out.sample(name + "_sum", labels, sumNanos.get() / 1e9);
+        out.sample(name + "_count", labels, cumulative);
+    }
+}
@@ -0,0 +1,70 @@
+package com.nettenz.ebay.metrics;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registry of the application's histograms and counters, written out by {@code /metrics}.
+ *
+ * <p>Looking a metric up builds its label string, so callers look it up once and keep the reference
+ * (typically in a static final field); recording into it afterwards does not allocate.</p>
+ */
+public final class Metrics {
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    Metrics() {}
+
+    public static Metrics instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param labels label name/value pairs, the same names for every histogram of the family
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, "histogram", help)
+                .children.computeIfAbsent(PrometheusWriter.labels(labels), l -> new Histogram());
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, "counter", help)
+                .children.computeIfAbsent(PrometheusWriter.labels(labels), l -> new Counter());
+    }
+
+    public void writeTo(PrometheusWriter out) {
+        for (Family family : families.values()) {
+            out.family(family.name, family.type, family.help);
+            family.children.forEach((labels, metric) -> {
+                if (metric instanceof Histogram h) {
+                    h.writeTo(out, family.name, labels);
+                } else {
+                    out.sample(family.name, labels, ((Counter) metric).value());
+                }
+            });
+        }
+    }
+
+    private Family family(String name, String type, String help) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, type, help));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static final class Family {
+
+        final String name;
+        final String type;
+        final String help;
+        final ConcurrentSkipListMap<String, Object> children = new ConcurrentSkipListMap<>();
+
+        Family(String name, String type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.nettenz.ebay.metrics;
+
+import java.io.PrintWriter;
+
+/**
+ * Writes samples in the Prometheus text exposition format (version 0.0.4).
+ * Each metric family starts with {@link #family}, followed by all of its samples.
+ */
+public final class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PrintWriter out;
+
+    public PrometheusWriter(PrintWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * @param type {@code counter}, {@code gauge} or {@code histogram}
+     */
+    public void family(String name, String type, String help) {
+        out.print("# HELP ");
+        out.print(name);
+        out.print(' ');
+        out.println(help.replace("\\", "\\\\").replace("\n", "\\n"));
+        out.print("# TYPE ");
+        out.print(name);
+        out.print(' ');
+        out.println(type);
+    }
+
+    public void sample(String name, String labels, long value) {
+        start(name, labels);
+        out.println(value);
+    }
+
+    public void sample(String name, String labels, double value) {
+        start(name, labels);
+        if (Double.isNaN(value)) {
+            out.println("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.println(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            out.println(value);
+        }
+    }
+
+    /**
+     * Shorthand for a family with a single unlabelled sample.
+     */
+    public void gauge(String name, String help, long value) {
+        family(name, "gauge", help);
+        sample(name, "", value);
+    }
+
+    public void counter(String name, String help, long value) {
+        family(name, "counter", help);
+        sample(name, "", value);
+    }
+
+    /**
+     * Renders label pairs ({@code name, value, name, value, ...}) as {@code name="value",...}, escaped.
+     */
+    public static String labels(String... pairs) {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(pairs[i]).append("=\"")
+                    .append(pairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    static String join(String labels, String more) {
+        return labels.isEmpty() ? more : labels + "," + more;
+    }
+
+    private void start(String name, String labels) {
+        out.print(name);
+        if (!labels.isEmpty()) {
+            out.print('{');
+            out.print(labels);
+            out.print('}');
+        }
+        out.print(' ');
+    }
+}
@@ -0,0 +1,40 @@
+package com.nettenz.ebay.search;
+
+import java.util.Arrays;
+
+/**
+ * Documents containing one term, in ascending document order, each with the term's weight in that document.
+ *
+ * <p>Appends happen under the index write lock; readers take a {@link #snapshot()} without locking.
+ * A snapshot shares the backing arrays but only covers the first {@code size} entries, which appends
+ * never touch again, so it stays valid while the list keeps growing.</p>
+ */
+final class PostingList {
+
+    private static final Snapshot EMPTY = new Snapshot(new int[0], new short[0], 0);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    /**
+     * Must be called with the index write lock held, with {@code doc} greater than every document already added.
+     */
+    void add(int doc, int weight) {
+        Snapshot s = snapshot;
+        int[] docs = s.docs;
+        short[] weights = s.weights;
+        if (s.size == docs.length) {
+            int capacity = Math.max(4, docs.length + (docs.length >> 1));
+            docs = Arrays.copyOf(docs, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        docs[s.size] = doc;
+        weights[s.size] = (short) Math.min(weight, Short.MAX_VALUE);
+        snapshot = new Snapshot(docs, weights, s.size + 1);
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    record Snapshot(int[] docs, short[] weights, int size) {}
+}
@@ -0,0 +1,448 @@
+package com.nettenz.ebay.search;
+
+import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.dao.ProductDao.SearchDoc;
+import com.nettenz.ebay.util.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ *
+ * <p>Every word of a query must match (the last word also matches as a prefix, for typeahead).
+ * Results are ranked by the summed weight of the matched terms, where a word in the name counts
+ * {@value #NAME_WEIGHT} times as much as one in the description and rare terms count more than common
+ * ones. Department counts are computed over all matches, so the facet list does not collapse when a
+ * department filter is applied.</p>
+ *
+ * <p>Products are indexed as {@link ProductDao#create} writes them; a background thread loads the
+ * catalogue at startup and periodically picks up products created by other nodes. Queries never lock:
+ * documents get ascending ordinals and every posting list is append-only (see {@link PostingList}).</p>
+ */
+public final class SearchIndex {
+
+    private static final Logger LOG = Logger.getLogger(SearchIndex.class.getName());
+
+    private static final SearchIndex INSTANCE = new SearchIndex(
+            new ProductDao(),
+            Env.getLong("SEARCH_INDEX_REFRESH_MS", 60_000),
+            Env.getInt("SEARCH_INDEX_BATCH_SIZE", 5_000));
+
+    private static final int NAME_WEIGHT = 3;
+    private static final float PREFIX_DISCOUNT = 0.7f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64; // the most frequent completions of a prefix
+    private static final long NO_DEPARTMENT = -1;
+    // Products committed out of id order on another node can appear behind the cursor; rescan a little.
+    private static final long REFRESH_OVERLAP_IDS = 1_000;
+
+    private final ProductDao productDao;
+    private final long refreshMillis;
+    private final int batchSize;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentSkipListMap<String, PostingList> terms = new ConcurrentSkipListMap<>();
+    private final HashMap<Long, Integer> ordinals = new HashMap<>(); // guarded by writeLock
+    private volatile Docs docs = new Docs(new long[0], new long[0], new String[0], 0);
+    private volatile int termCount;                                  // written under writeLock
+
+    private volatile boolean ready;
+    private long loadedThrough;                                      // indexer thread only
+    private ScheduledExecutorService indexer;
+
+    SearchIndex(ProductDao productDao, long refreshMillis, int batchSize) {
+        this.productDao = productDao;
+        this.refreshMillis = refreshMillis;
+        this.batchSize = batchSize;
+    }
+
+    public static SearchIndex instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts loading the catalogue in the background and schedules periodic refreshes.
+     * Until the first load finishes, searches only see what has been indexed so far.
+     */
+    public synchronized void start() {
+        if (indexer != null) {
+            return;
+        }
+        indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-indexer");
+            t.setDaemon(true);
+            return t;
+        });
+        indexer.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (indexer != null) {
+            indexer.shutdownNow();
+            indexer = null;
+        }
+    }
+
+    /**
+     * Adds a product to the index. Products that are already indexed are ignored.
+     */
+    public void add(SearchDoc doc) {
+        Map<String, Integer> weights = termWeights(doc);
+
+        writeLock.lock();
+        try {
+            if (ordinals.containsKey(doc.id())) {
+                return;
+            }
+            Docs d = docs;
+            int ordinal = d.size;
+            long[] productIds = d.productIds;
+            long[] departmentIds = d.departmentIds;
+            String[] names = d.names;
+            if (ordinal == productIds.length) {
+                int capacity = Math.max(16, productIds.length + (productIds.length >> 1));
+                productIds = Arrays.copyOf(productIds, capacity);
+                departmentIds = Arrays.copyOf(departmentIds, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            productIds[ordinal] = doc.id();
+            departmentIds[ordinal] = doc.departmentId() != null ? doc.departmentId() : NO_DEPARTMENT;
+            names[ordinal] = doc.name();
+            // Publish the document before its postings, so a reader never meets an ordinal it cannot resolve.
+            docs = new Docs(productIds, departmentIds, names, ordinal + 1);
+            ordinals.put(doc.id(), ordinal);
+
+            for (Map.Entry<String, Integer> e : weights.entrySet()) {
+                PostingList postings = terms.get(e.getKey());
+                if (postings == null) {
+                    postings = new PostingList();
+                    terms.put(e.getKey(), postings);
+                    termCount++;
+                }
+                postings.add(ordinal, e.getValue());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the best {@code limit} products matching every word of {@code query}.
+     *
+     * @param departmentId only return products in this department, or null for all
+     */
+    public Result search(String query, Long departmentId, int limit) {
+        long start = System.nanoTime();
+        Query q = Query.parse(query);
+        if (q.isEmpty()) {
+            return Result.empty(start);
+        }
+
+        int docCount = docs.size;
+        List<Matches> lists = new ArrayList<>(q.terms.size() + 1);
+        for (String term : q.terms) {
+            PostingList postings = terms.get(term);
+            if (postings == null) {
+                return Result.empty(start);
+            }
+            PostingList.Snapshot s = postings.snapshot();
+            lists.add(Matches.of(s, idf(s.size(), docCount)));
+        }
+        if (q.prefix != null) {
+            lists.add(prefixMatches(q.prefix, docCount));
+        }
+        lists.sort(Comparator.comparingInt(m -> m.size));
+        if (lists.get(0).size == 0) {
+            return Result.empty(start);
+        }
+
+        // Read after the postings: every ordinal they contain was published before them.
+        Docs d = docs;
+        long wantedDepartment = departmentId != null ? departmentId : NO_DEPARTMENT;
+        HashMap<Long, int[]> facetCounts = new HashMap<>();
+        PriorityQueue<Candidate> top = new PriorityQueue<>(Math.max(1, limit), Candidate.WORST_FIRST);
+        int total = 0;
+
+        Matches lead = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        candidates:
+        for (int i = 0; i < lead.size; i++) {
+            int doc = lead.docs[i];
+            float score = lead.score(i);
+            for (int j = 1; j < lists.size(); j++) {
+                Matches other = lists.get(j);
+                int pos = other.advance(cursors[j], doc);
+                cursors[j] = pos;
+                if (pos == other.size) {
+                    break candidates;
+                }
+                if (other.docs[pos] != doc) {
+                    continue candidates;
+                }
+                score += other.score(pos);
+            }
+
+            long department = d.departmentIds[doc];
+            if (department != NO_DEPARTMENT) {
+                facetCounts.computeIfAbsent(department, k -> new int[1])[0]++;
+            }
+            if (departmentId != null && department != wantedDepartment) {
+                continue;
+            }
+            total++;
+            if (limit <= 0) {
+                continue;
+            }
+            Candidate c = new Candidate(doc, score);
+            if (top.size() < limit) {
+                top.add(c);
+            } else if (Candidate.WORST_FIRST.compare(c, top.peek()) > 0) {
+                top.poll();
+                top.add(c);
+            }
+        }
+
+        Hit[] hits = new Hit[top.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            Candidate c = top.poll();
+            hits[i] = new Hit(d.productIds[c.doc], d.names[c.doc], c.score);
+        }
+        Map<Long, Integer> departments = new LinkedHashMap<>();
+        facetCounts.entrySet().stream()
+                .sorted((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]))
+                .forEach(e -> departments.put(e.getKey(), e.getValue()[0]));
+        return new Result(List.of(hits), total, departments, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Stats stats() {
+        return new Stats(docs.size, termCount, ready);
+    }
+
+    /**
+     * Indexes products created since the last refresh, including those written by other nodes.
+     */
+    void refresh() {
+        long cursor = ready ? Math.max(0, loadedThrough - REFRESH_OVERLAP_IDS) : loadedThrough;
+        while (true) {
+            List<SearchDoc> batch = productDao.findSearchDocsAfter(cursor, batchSize);
+            for (SearchDoc doc : batch) {
+                add(doc);
+                cursor = doc.id();
+            }
+            if (!ready) {
+                loadedThrough = Math.max(loadedThrough, cursor); // resume here if the initial load fails midway
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        loadedThrough = Math.max(loadedThrough, cursor);
+        if (!ready) {
+            ready = true;
+            LOG.info("Search index loaded: " + docs.size + " products, " + termCount + " terms");
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Search index refresh failed", e);
+        }
+    }
+
+    private Matches prefixMatches(String prefix, int docCount) {
+        // Keep the completions found in the most documents: a min-heap of the best so far by document
+        // frequency. The prefix itself, if it is a term, is always kept.
+        PriorityQueue<Expansion> best = new PriorityQueue<>(Comparator.comparingInt(e -> e.postings().size()));
+        Expansion exact = null;
+        for (Map.Entry<String, PostingList> e
+                : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+            Expansion expansion = new Expansion(e.getKey(), e.getValue().snapshot());
+            if (expansion.term().equals(prefix)) {
+                exact = expansion;
+                continue;
+            }
+            best.add(expansion);
+            if (best.size() > MAX_PREFIX_EXPANSIONS - 1) {
+                best.poll();
+            }
+        }
+        List<Expansion> expansions = new ArrayList<>(best);
+        if (exact != null) {
+            expansions.add(exact);
+        }
+        if (expansions.isEmpty()) {
+            return Matches.NONE;
+        }
+        if (expansions.size() == 1) {
+            Expansion e = expansions.get(0);
+            return Matches.of(e.postings(), idf(e.postings().size(), docCount) * (e == exact ? 1 : PREFIX_DISCOUNT));
+        }
+
+        // Merge the expansions into one list ordered by document: pack (doc, score) into longs and sort.
+        int n = 0;
+        for (Expansion e : expansions) {
+            n += e.postings().size();
+        }
+        long[] packed = new long[n];
+        int k = 0;
+        for (Expansion e : expansions) {
+            PostingList.Snapshot s = e.postings();
+            float factor = idf(s.size(), docCount) * (e == exact ? 1 : PREFIX_DISCOUNT);
+            for (int p = 0; p < s.size(); p++) {
+                packed[k++] = ((long) s.docs()[p] << 32) | (Float.floatToRawIntBits(s.weights()[p] * factor) & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(packed);
+
+        int[] mergedDocs = new int[n];
+        float[] mergedScores = new float[n];
+        int size = 0;
+        for (long entry : packed) {
+            int doc = (int) (entry >>> 32);
+            float score = Float.intBitsToFloat((int) entry);
+            if (size > 0 && mergedDocs[size - 1] == doc) {
+                // A document containing several completions scores as its best one.
+                mergedScores[size - 1] = Math.max(mergedScores[size - 1], score);
+            } else {
+                mergedDocs[size] = doc;
+                mergedScores[size] = score;
+                size++;
+            }
+        }
+        return new Matches(mergedDocs, mergedScores, null, 0, size);
+    }
+
+    private static Map<String, Integer> termWeights(SearchDoc doc) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : Tokenizer.tokenize(doc.name())) {
+            weights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : Tokenizer.tokenize(doc.description())) {
+            weights.merge(term, 1, Integer::sum);
+        }
+        return weights;
+    }
+
+    private static float idf(int documentFrequency, int docCount) {
+        return (float) Math.log(1 + (double) Math.max(docCount, documentFrequency) / Math.max(1, documentFrequency));
+    }
+
+    private record Expansion(String term, PostingList.Snapshot postings) {}
+
+    /**
+     * The words of a query: all but the last must match exactly; a last word that is still being
+     * typed (no trailing space) matches as a prefix.
+     */
+    private record Query(List<String> terms, String prefix) {
+
+        static Query parse(String query) {
+            if (query == null || query.isBlank()) {
+                return new Query(List.of(), null);
+            }
+            int end = query.length();
+            int wordStart = end;
+            while (wordStart > 0 && Character.isLetterOrDigit(query.charAt(wordStart - 1))) {
+                wordStart--;
+            }
+            if (wordStart == end) {
+                return new Query(distinct(Tokenizer.tokenize(query)), null);
+            }
+            String prefix = Tokenizer.normalizePrefix(query.substring(wordStart));
+            List<String> terms = distinct(Tokenizer.tokenize(query.substring(0, wordStart)));
+            terms.remove(prefix); // already required by the prefix match
+            return new Query(terms, prefix);
+        }
+
+        boolean isEmpty() {
+            return terms.isEmpty() && prefix == null;
+        }
+
+        private static List<String> distinct(List<String> tokens) {
+            return new ArrayList<>(new LinkedHashSet<>(tokens));
+        }
+    }
+
+    /**
+     * Documents matching one query word, ascending, with their score for that word.
+     * Either has per-document scores, or weights scaled by a common factor (a posting list used as is).
+     */
+    private record Matches(int[] docs, float[] scores, short[] weights, float factor, int size) {
+
+        static final Matches NONE = new Matches(new int[0], new float[0], null, 0, 0);
+
+        static Matches of(PostingList.Snapshot s, float factor) {
+            return new Matches(s.docs(), null, s.weights(), factor, s.size());
+        }
+
+        float score(int i) {
+            return scores != null ? scores[i] : weights[i] * factor;
+        }
+
+        /**
+         * Returns the first index at or after {@code from} whose document is not less than {@code target}
+         * ({@code size} if there is none). Gallops, then binary searches, so skipping far ahead is cheap.
+         */
+        int advance(int from, int target) {
+            int lo = from;
+            int hi = from;
+            int step = 1;
+            while (hi < size && docs[hi] < target) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            hi = Math.min(hi, size);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (docs[mid] < target) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private record Candidate(int doc, float score) {
+        // Lowest score first; among equal scores, the older listing (lower ordinal) is worse.
+        static final Comparator<Candidate> WORST_FIRST =
+                Comparator.comparingDouble(Candidate::score).thenComparingInt(Candidate::doc);
+    }
+
+    private record Docs(long[] productIds, long[] departmentIds, String[] names, int size) {}
+
+    public record Hit(long productId, String name, float score) {}
+
+    /**
+     * @param departmentCounts matches per department id, most matches first, ignoring the department filter
+     */
+    public record Result(List<Hit> hits, int totalMatches, Map<Long, Integer> departmentCounts, double tookMillis) {
+
+        static Result empty(long startNanos) {
+            return new Result(List.of(), 0, Map.of(), (System.nanoTime() - startNanos) / 1_000_000.0);
+        }
+    }
+
+    public record Stats(int documents, int terms, boolean ready) {}
+}
@@ -0,0 +1,231 @@
+package com.nettenz.ebay.security;
+
+import com.nettenz.ebay.util.Env;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the logged-in user and one-shot flash messages are kept between requests.
+ *
+ * <p>With {@code SESSION_MODE=container} (the default) they live in the servlet container's
+ * {@link HttpSession}. With {@code SESSION_MODE=cookie} nothing is stored on the server: the user id,
+ * username and role travel in an HMAC-SHA256 signed, expiring cookie, so any node can serve any request
+ * without sticky load balancing or session replication. The cookie is re-issued once half its lifetime
+ * has passed, so active users stay logged in.</p>
+ *
+ * <p>Either way, {@code AuthFilter} calls {@link #load} on every request, which exposes the user as the
+ * request attributes {@link #USER_ID}, {@link #USERNAME} and {@link #ROLE}; servlets and JSPs read those
+ * and never touch the session directly.</p>
+ */
+public final class AuthSession {
+
+    public static final String USER_ID = "auth.userId";
+    public static final String USERNAME = "auth.username";
+    public static final String ROLE = "auth.role";
+
+    private static final String AUTH_COOKIE = "auth";
+    private static final String FLASH_COOKIE_PREFIX = "flash-";
+    private static final int FLASH_MAX_AGE_SECONDS = 60;
+    private static final int MIN_SECRET_LENGTH = 32;
+    private static final String HMAC = "HmacSHA256";
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+
+    private static final AuthSession INSTANCE = new AuthSession(
+            Env.get("SESSION_MODE", "container"),
+            Env.get("SESSION_SECRET", null),
+            Env.getLong("SESSION_TTL_MINUTES", 30));
+
+    private final boolean stateless;
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+
+    AuthSession(String mode, String secret, long ttlMinutes) {
+        this.stateless = switch (mode.toLowerCase(Locale.ROOT)) {
+            case "container" -> false;
+            case "cookie" -> true;
+            default -> throw new IllegalStateException("SESSION_MODE must be 'container' or 'cookie': " + mode);
+        };
+        if (stateless && (secret == null || secret.length() < MIN_SECRET_LENGTH)) {
+            throw new IllegalStateException("SESSION_MODE=cookie needs SESSION_SECRET of at least "
+                    + MIN_SECRET_LENGTH + " characters");
+        }
+        this.key = stateless ? new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC) : null;
+        this.ttlSeconds = TimeUnit.MINUTES.toSeconds(ttlMinutes);
+    }
+
+    public static AuthSession instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the {@code auth.*} request attributes if the request belongs to a logged-in user.
+     */
+    public void load(HttpServletRequest req, HttpServletResponse resp) {
+        if (!stateless) {
+            HttpSession session = req.getSession(false);
+            if (session != null && session.getAttribute(USER_ID) != null) {
+                req.setAttribute(USER_ID, session.getAttribute(USER_ID));
+                req.setAttribute(USERNAME, session.getAttribute(USERNAME));
+                req.setAttribute(ROLE, session.getAttribute(ROLE));
+            }
+            return;
+        }
+        String token = cookieValue(req, AUTH_COOKIE);
+        if (token == null) {
+            return;
+        }
+        // userId.base64(username).role.expiresAt.signature
+        String[] parts = token.split("\\.");
+        long now = System.currentTimeMillis() / 1000;
+        try {
+            if (parts.length != 5 || !verify(token.substring(0, token.lastIndexOf('.')), parts[4])) {
+                throw new IllegalArgumentException("bad signature");
+            }
+            long expiresAt = Long.parseLong(parts[3]);
+            if (expiresAt <= now) {
+                throw new IllegalArgumentException("expired");
+            }
+            long userId = Long.parseLong(parts[0]);
+            String username = new String(B64_DECODER.decode(parts[1]), StandardCharsets.UTF_8);
+            req.setAttribute(USER_ID, userId);
+            req.setAttribute(USERNAME, username);
+            req.setAttribute(ROLE, parts[2]);
+            if (expiresAt - now < ttlSeconds / 2) {
+                issue(req, resp, userId, username, parts[2]);
+            }
+        } catch (IllegalArgumentException e) {
+            setCookie(req, resp, AUTH_COOKIE, "", 0);
+        }
+    }
+
+    public void login(HttpServletRequest req, HttpServletResponse resp, long userId, String username, String role) {
+        if (stateless) {
+            issue(req, resp, userId, username, role);
+            return;
+        }
+        HttpSession session = req.getSession(true);
+        session.setAttribute(USER_ID, userId);
+        session.setAttribute(USERNAME, username);
+        session.setAttribute(ROLE, role); // "USER" or "ADMIN"
+    }
+
+    /**
+     * Ends the login. In cookie mode this only deletes the cookie from the browser: a copy taken
+     * earlier stays valid until it expires, and only changing {@code SESSION_SECRET} revokes it.
+     */
+    public void logout(HttpServletRequest req, HttpServletResponse resp) {
+        if (stateless) {
+            setCookie(req, resp, AUTH_COOKIE, "", 0);
+            return;
+        }
+        HttpSession s = req.getSession(false);
+        if (s != null) s.invalidate();
+    }
+
+    /**
+     * Keeps a message for the next page the user sees (typically after a redirect).
+     */
+    public void flash(HttpServletRequest req, HttpServletResponse resp, String name, String message) {
+        if (!stateless) {
+            req.getSession().setAttribute(name, message);
+            return;
+        }
+        // Signed, since flash messages are rendered as HTML
+        String payload = B64.encodeToString(message.getBytes(StandardCharsets.UTF_8));
+        setCookie(req, resp, FLASH_COOKIE_PREFIX + name,
+                payload + "." + sign("flash:" + name + ":" + payload), FLASH_MAX_AGE_SECONDS);
+    }
+
+    /**
+     * Returns and removes a message kept by {@link #flash}, or null. Call this before the response is
+     * committed, i.e. in the servlet rather than the JSP.
+     */
+    public String takeFlash(HttpServletRequest req, HttpServletResponse resp, String name) {
+        if (!stateless) {
+            HttpSession session = req.getSession(false);
+            if (session == null) {
+                return null;
+            }
+            String message = (String) session.getAttribute(name);
+            session.removeAttribute(name);
+            return message;
+        }
+        String value = cookieValue(req, FLASH_COOKIE_PREFIX + name);
+        if (value == null) {
+            return null;
+        }
+        setCookie(req, resp, FLASH_COOKIE_PREFIX + name, "", 0);
+        int dot = value.indexOf('.');
+        if (dot < 0 || !verify("flash:" + name + ":" + value.substring(0, dot), value.substring(dot + 1))) {
+            return null;
+        }
+        try {
+            return new String(B64_DECODER.decode(value.substring(0, dot)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public boolean stateless() {
+        return stateless;
+    }
+
+    private void issue(HttpServletRequest req, HttpServletResponse resp, long userId, String username, String role) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = userId + "." + B64.encodeToString(username.getBytes(StandardCharsets.UTF_8))
+                + "." + role + "." + expiresAt;
+        setCookie(req, resp, AUTH_COOKIE, payload + "." + sign(payload), (int) ttlSeconds);
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return B64.encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+    }
+
+    private boolean verify(String payload, String signature) {
+        // Constant-time comparison, so response timing does not reveal how much of a forged signature is right
+        return MessageDigest.isEqual(sign(payload).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String cookieValue(HttpServletRequest req, String name) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie c : cookies) {
+            if (c.getName().equals(name) && !c.getValue().isEmpty()) {
+                return c.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static void setCookie(HttpServletRequest req, HttpServletResponse resp, String name, String value, int maxAge) {
+        Cookie cookie = new Cookie(name, value);
+        cookie.setPath(req.getContextPath().isEmpty() ? "/" : req.getContextPath());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(req.isSecure());
+        cookie.setMaxAge(maxAge);
+        cookie.setAttribute("SameSite", "Lax");
+        resp.addCookie(cookie);
+    }
+}
@@ -0,0 +1,54 @@
+package com.nettenz.ebay.security;
+
+import com.nettenz.ebay.util.Env;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Locale;
+
+/**
+ * Rate limits for login and registration attempts, per client IP and per username.
+ *
+ * <p>Checked before any database or bcrypt work, so a credential-stuffing run is turned away for the
+ * price of a map lookup. The per-username limit protects an account from distributed guessing that a
+ * per-IP limit alone would miss. Client IPs come from {@link HttpServletRequest#getRemoteAddr()}; behind a
+ * reverse proxy, configure Tomcat's {@code RemoteIpValve} so that is the real client address.</p>
+ */
+public final class AuthThrottle {
+
+    private static final int MAX_TRACKED_KEYS = 100_000;
+
+    private static final AuthThrottle INSTANCE = new AuthThrottle(
+            new RateLimiter(Env.getInt("AUTH_IP_BURST", 20), Env.getInt("AUTH_IP_PER_MINUTE", 30), MAX_TRACKED_KEYS),
+            new RateLimiter(Env.getInt("AUTH_USER_BURST", 5), Env.getInt("AUTH_USER_PER_MINUTE", 6), MAX_TRACKED_KEYS));
+
+    private final RateLimiter byIp;
+    private final RateLimiter byUsername;
+
+    AuthThrottle(RateLimiter byIp, RateLimiter byUsername) {
+        this.byIp = byIp;
+        this.byUsername = byUsername;
+    }
+
+    public static AuthThrottle instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Takes one attempt from the client's and (if given) the username's allowance.
+     *
+     * @return 0 if the attempt may proceed, otherwise the milliseconds after which to retry
+     */
+    public long tryAcquire(HttpServletRequest req, String username) {
+        long wait = byIp.tryAcquire(req.getRemoteAddr());
+        if (wait > 0 || username == null || username.isBlank()) {
+            return wait;
+        }
+        return byUsername.tryAcquire(username.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public Stats stats() {
+        return new Stats(byIp.size(), byIp.throttledCount(), byUsername.size(), byUsername.throttledCount());
+    }
+
+    public record Stats(int trackedIps, long throttledByIp, int trackedUsernames, long throttledByUsername) {}
+}
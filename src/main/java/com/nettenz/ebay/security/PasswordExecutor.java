@@ -0,0 +1,102 @@
+package com.nettenz.ebay.security;
+
+import com.nettenz.ebay.util.Env;
+import com.nettenz.ebay.util.PasswordUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs bcrypt hashing and verification on a small dedicated pool.
+ *
+ * <p>A bcrypt check costs a few hundred milliseconds of CPU. Running it on request threads lets a login
+ * storm occupy every core; here it can use at most {@code BCRYPT_WORKERS} of them, and once
+ * {@code BCRYPT_QUEUE_CAPACITY} requests are waiting, new ones are rejected immediately instead of
+ * queueing behind work that would time out anyway. The calling request thread waits, but does not
+ * compute.</p>
+ */
+public final class PasswordExecutor {
+
+    private static final PasswordExecutor INSTANCE = new PasswordExecutor(
+            Env.getInt("BCRYPT_WORKERS", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Env.getInt("BCRYPT_QUEUE_CAPACITY", 32),
+            Env.getLong("BCRYPT_TIMEOUT_MS", 5_000));
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final LongAdder rejected = new LongAdder();
+
+    PasswordExecutor(int workers, int queueCapacity, long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "bcrypt-worker-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public static PasswordExecutor instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public boolean verify(String plainPassword, String storedHash) {
+        return run(() -> PasswordUtil.verify(plainPassword, storedHash));
+    }
+
+    /**
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public String hash(String plainPassword) {
+        return run(() -> PasswordUtil.hash(plainPassword));
+    }
+
+    public Stats stats() {
+        return new Stats(executor.getQueue().size(), executor.getActiveCount(), executor.getCompletedTaskCount(),
+                rejected.sum());
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejected.increment();
+            throw new RejectedExecutionException("Password check timed out after " + timeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for password check", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public record Stats(int queueDepth, int active, long completed, long rejected) {}
+}
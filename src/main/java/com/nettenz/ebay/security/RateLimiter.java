@@ -0,0 +1,85 @@
+package com.nettenz.ebay.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free token bucket per key (client IP, username, ...).
+ *
+ * <p>Each bucket is a single {@link AtomicLong} holding the time at which it will be full again (the
+ * generic cell rate algorithm): taking a token pushes that time one refill interval into the future,
+ * and the request is allowed while it stays within {@code burst} intervals of now. Updates are one CAS,
+ * so throttling costs nothing noticeable even under a flood. Buckets that have refilled completely carry
+ * no information and are swept (at most once a second) while the map is larger than {@code sweepThreshold} keys.</p>
+ */
+public final class RateLimiter {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int sweepThreshold;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param burst     requests allowed back to back from a full bucket
+     * @param perMinute sustained requests per minute
+     */
+    public RateLimiter(int burst, int perMinute, int sweepThreshold) {
+        if (burst < 1 || perMinute < 1) {
+            throw new IllegalArgumentException("burst and perMinute must be positive");
+        }
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        this.burstNanos = intervalNanos * burst;
+        this.sweepThreshold = sweepThreshold;
+    }
+
+    /**
+     * Takes a token for {@code key}.
+     *
+     * @return 0 if allowed, otherwise the milliseconds until a token will be available
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= sweepThreshold) {
+                sweep(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                throttled.increment();
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(excess));
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        // At most one sweep per second, by one thread, so a flood of new keys cannot turn every call into a scan.
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.entrySet().removeIf(e -> e.getValue().get() <= now);
+    }
+}
@@ -1,12 +1,23 @@
 package com.nettenz.ebay.servlet;
 
+import com.nettenz.ebay.auction.BidEngine;
+import com.nettenz.ebay.auction.BidWriter;
+import com.nettenz.ebay.cache.ProductCache;
+import com.nettenz.ebay.cache.ResponseCache;
+import com.nettenz.ebay.cache.TinyLfuCache;
+import com.nettenz.ebay.db.ConnectionPool;
 import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.image.ImagePipeline;
+import com.nettenz.ebay.security.AuthThrottle;
+import com.nettenz.ebay.security.PasswordExecutor;
+import com.nettenz.ebay.search.SearchIndex;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 
 @WebServlet("/db-health")
 public class DbHealthServlet extends HttpServlet {
@@ -19,10 +30,79 @@ public class DbHealthServlet extends HttpServlet {
 
         try (var conn = Db.getConnection()) {
             resp.getWriter().println("DB OK");
+            printPoolStats(resp);
         } catch (Exception e) {
             resp.setStatus(500);
             resp.getWriter().println("DB ERROR");
             e.printStackTrace(resp.getWriter());
         }
     }
+
+    private void printPoolStats(HttpServletResponse resp) throws IOException {
+        ConnectionPool.Stats stats = Db.poolStats();
+        var out = resp.getWriter();
+        out.println("pool.active=" + stats.active());
+        out.println("pool.idle=" + stats.idle());
+        out.println("pool.total=" + stats.total());
+        out.println("pool.max=" + stats.maxSize());
+        out.println("pool.waiting=" + stats.waiting());
+        out.println("pool.acquire.p99.ms=" + String.format("%.3f", stats.p99AcquireMillis()));
+        out.println("pool.acquired=" + stats.acquired());
+        out.println("pool.timeouts=" + stats.timeouts());
+        out.println("stmtcache.hits=" + stats.statementCacheHits());
+        out.println("stmtcache.misses=" + stats.statementCacheMisses());
+        out.println("stmtcache.evictions=" + stats.statementCacheEvictions());
+
+        printCacheStats(out, "cache.products", ProductCache.instance().productStats());
+        printCacheStats(out, "cache.bidhistory", ProductCache.instance().bidHistoryStats());
+        printCacheStats(out, "cache.responses", ResponseCache.instance().stats());
+
+        SearchIndex.Stats search = SearchIndex.instance().stats();
+        out.println("search.ready=" + search.ready());
+        out.println("search.documents=" + search.documents());
+        out.println("search.terms=" + search.terms());
+
+        ImagePipeline.Stats images = ImagePipeline.instance().stats();
+        out.println("images.queue.depth=" + images.queueDepth());
+        out.println("images.active=" + images.active());
+        out.println("images.processed=" + images.processed());
+        out.println("images.failed=" + images.failed());
+        out.println("images.rejected=" + images.rejected());
+        out.println("images.process.avg.ms=" + String.format("%.1f", images.avgProcessMillis()));
+
+        PasswordExecutor.Stats bcrypt = PasswordExecutor.instance().stats();
+        out.println("bcrypt.queue.depth=" + bcrypt.queueDepth());
+        out.println("bcrypt.active=" + bcrypt.active());
+        out.println("bcrypt.completed=" + bcrypt.completed());
+        out.println("bcrypt.rejected=" + bcrypt.rejected());
+        AuthThrottle.Stats throttle = AuthThrottle.instance().stats();
+        out.println("auth.throttle.tracked.ips=" + throttle.trackedIps());
+        out.println("auth.throttle.throttled.ip=" + throttle.throttledByIp());
+        out.println("auth.throttle.tracked.usernames=" + throttle.trackedUsernames());
+        out.println("auth.throttle.throttled.username=" + throttle.throttledByUsername());
+
+        BidWriter.Stats writer = BidEngine.instance().writerStats();
+        if (writer != null) {
+            out.println("bidwriter.batches=" + writer.batches());
+            out.println("bidwriter.bids=" + writer.bidsWritten());
+            out.println("bidwriter.failed.batches=" + writer.failedBatches());
+            out.println("bidwriter.rejected.writes=" + writer.rejectedWrites());
+            out.println("bidwriter.batch.size.avg=" + String.format("%.2f", writer.avgBatchSize()));
+            out.println("bidwriter.batch.size.max=" + writer.maxBatchSize());
+            out.println("bidwriter.commit.avg.ms=" + String.format("%.3f", writer.avgCommitMillis()));
+            out.println("bidwriter.commit.max.ms=" + String.format("%.3f", writer.maxCommitMillis()));
+            out.println("bidwriter.queue.depth=" + writer.queueDepth());
+        }
+    }
+
+    private void printCacheStats(PrintWriter out, String prefix, TinyLfuCache.Stats stats) {
+        out.println(prefix + ".size=" + stats.size());
+        out.println(prefix + ".max=" + stats.maximumSize());
+        out.println(prefix + ".hits=" + stats.hits());
+        out.println(prefix + ".misses=" + stats.misses());
+        out.println(prefix + ".hit.ratio=" + String.format("%.4f", stats.hitRatio()));
+        out.println(prefix + ".evictions=" + stats.evictions());
+        out.println(prefix + ".rejections=" + stats.rejections());
+        out.println(prefix + ".load.avg.ms=" + String.format("%.3f", stats.avgLoadMillis()));
+    }
 }
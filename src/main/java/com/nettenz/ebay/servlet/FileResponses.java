@@ -0,0 +1,183 @@
+package com.nettenz.ebay.servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sends files from disk with HTTP validators, conditional requests and single byte ranges.
+ *
+ * <p>Bodies are sent without copying through the JVM heap: on Tomcat's NIO/NIO2 connectors the file
+ * is handed to the connector's sendfile support, which writes it to the socket with
+ * {@link FileChannel#transferTo}. Elsewhere the file channel is transferred straight into the
+ * response stream.</p>
+ */
+public final class FileResponses {
+    private FileResponses() {}
+
+    /** For files whose name changes whenever their content does. */
+    public static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    /**
+     * Writes {@code file} as the response, or a 304/416 status when the request calls for one.
+     *
+     * @param etag         strong entity tag, including the quotes
+     * @param lastModified modification time in epoch millis
+     * @param sendBody     false for HEAD requests
+     */
+    public static void send(HttpServletRequest req, HttpServletResponse resp, Path file, long length,
+                            long lastModified, String contentType, String etag, String cacheControl,
+                            boolean sendBody) throws IOException {
+        resp.setHeader("ETag", etag);
+        resp.setDateHeader("Last-Modified", lastModified);
+        resp.setHeader("Cache-Control", cacheControl);
+        resp.setHeader("Accept-Ranges", "bytes");
+
+        if (notModified(req, etag, lastModified)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length; // exclusive
+        String range = req.getHeader("Range");
+        if (range != null && rangeApplies(req, etag, lastModified)) {
+            long[] r = parseRange(range, length);
+            if (r == UNSATISFIABLE) {
+                resp.setHeader("Content-Range", "bytes */" + length);
+                resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (r != null) {
+                start = r[0];
+                end = r[1];
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        resp.setContentType(contentType);
+        resp.setContentLengthLong(end - start);
+        if (!sendBody || end == start) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            req.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(resp.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long sent = in.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    break; // file shrank underneath us; the client sees a short body
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest req, String etag, long lastModified) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = dateHeader(req, "If-Modified-Since");
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * A Range request only applies if its If-Range validator (if any) still matches the current file.
+     */
+    private static boolean rangeApplies(HttpServletRequest req, String etag, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.trim().equals(etag);
+        }
+        long date = dateHeader(req, "If-Range");
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String bare = etag.substring(1, etag.length() - 1);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // If-None-Match uses weak comparison
+            }
+            if (tag.length() >= 2 && tag.substring(1, tag.length() - 1).equals(bare)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single {@code bytes=} range into {@code [start, endExclusive]}.
+     * Returns null to ignore the header (malformed or multiple ranges, which are answered with the full file)
+     * and {@link #UNSATISFIABLE} when the range lies outside the file.
+     */
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last); // bytes=-N: the last N bytes
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[]{Math.max(0, length - suffix), length};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length : Math.min(Long.parseLong(last) + 1, length);
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            if (end <= start) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
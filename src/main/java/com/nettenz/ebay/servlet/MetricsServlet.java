@@ -0,0 +1,142 @@
+package com.nettenz.ebay.servlet;
+
+import com.nettenz.ebay.auction.AuctionCloser;
+import com.nettenz.ebay.auction.BidEngine;
+import com.nettenz.ebay.auction.BidWriter;
+import com.nettenz.ebay.cache.ProductCache;
+import com.nettenz.ebay.cache.ResponseCache;
+import com.nettenz.ebay.cache.TinyLfuCache;
+import com.nettenz.ebay.db.ConnectionPool;
+import com.nettenz.ebay.db.Db;
+import com.nettenz.ebay.image.ImagePipeline;
+import com.nettenz.ebay.metrics.Metrics;
+import com.nettenz.ebay.metrics.PrometheusWriter;
+import com.nettenz.ebay.security.AuthThrottle;
+import com.nettenz.ebay.security.PasswordExecutor;
+import com.nettenz.ebay.search.SearchIndex;
+import com.nettenz.ebay.util.Env;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prometheus scrape endpoint: the latency histograms and counters in {@link Metrics}, followed by the
+ * pool, cache and executor stats that {@code /db-health} prints, as gauges and counters.
+ *
+ * <p>Public in {@code AuthFilter} because scrapers cannot log in; instead requests must send
+ * {@code METRICS_TOKEN} as {@code Authorization: Bearer <token>}. Without a token the endpoint answers 404,
+ * unless {@code METRICS_PUBLIC=true} opens it to anyone (only for a port the public cannot reach).</p>
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+    private static final String TOKEN = Env.get("METRICS_TOKEN", "");
+    private static final boolean PUBLIC = Env.getBoolean("METRICS_PUBLIC", false);
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (TOKEN.isEmpty()) {
+            if (!PUBLIC) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        } else if (!authorized(req.getHeader("Authorization"))) {
+            resp.setHeader("WWW-Authenticate", "Bearer");
+            resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        resp.setContentType(PrometheusWriter.CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "no-store");
+        PrometheusWriter out = new PrometheusWriter(resp.getWriter());
+        Metrics.instance().writeTo(out);
+        writePoolStats(out);
+        writeCacheStats(out);
+        writeComponentStats(out);
+    }
+
+    private boolean authorized(String header) {
+        String expected = "Bearer " + TOKEN;
+        return header != null && MessageDigest.isEqual(
+                header.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writePoolStats(PrometheusWriter out) {
+        ConnectionPool.Stats stats = Db.poolStats();
+        out.gauge("db_pool_active_connections", "Connections currently borrowed", stats.active());
+        out.gauge("db_pool_idle_connections", "Connections idle in the pool", stats.idle());
+        out.gauge("db_pool_connections", "Open connections, including those being opened", stats.total());
+        out.gauge("db_pool_max_connections", "Configured maximum pool size", stats.maxSize());
+        out.gauge("db_pool_waiting_threads", "Threads waiting for a connection", stats.waiting());
+        out.counter("db_pool_acquired_total", "Connections handed out", stats.acquired());
+        out.counter("db_pool_timeouts_total", "Borrowers that timed out waiting for a connection", stats.timeouts());
+        out.counter("db_statement_cache_hits_total", "Prepared statements reused from the cache", stats.statementCacheHits());
+        out.counter("db_statement_cache_misses_total", "Prepared statements created", stats.statementCacheMisses());
+        out.counter("db_statement_cache_evictions_total", "Prepared statements evicted", stats.statementCacheEvictions());
+    }
+
+    private void writeCacheStats(PrometheusWriter out) {
+        Map<String, TinyLfuCache.Stats> caches = new LinkedHashMap<>();
+        caches.put("products", ProductCache.instance().productStats());
+        caches.put("bidhistory", ProductCache.instance().bidHistoryStats());
+        caches.put("responses", ResponseCache.instance().stats());
+
+        out.family("cache_entries", "gauge", "Entries in the cache");
+        caches.forEach((name, s) -> out.sample("cache_entries", PrometheusWriter.labels("cache", name), s.size()));
+        out.family("cache_max_entries", "gauge", "Configured maximum entries");
+        caches.forEach((name, s) -> out.sample("cache_max_entries", PrometheusWriter.labels("cache", name), s.maximumSize()));
+        out.family("cache_hits_total", "counter", "Lookups served from the cache");
+        caches.forEach((name, s) -> out.sample("cache_hits_total", PrometheusWriter.labels("cache", name), s.hits()));
+        out.family("cache_misses_total", "counter", "Lookups that had to load the value");
+        caches.forEach((name, s) -> out.sample("cache_misses_total", PrometheusWriter.labels("cache", name), s.misses()));
+        out.family("cache_evictions_total", "counter", "Entries evicted to admit new ones");
+        caches.forEach((name, s) -> out.sample("cache_evictions_total", PrometheusWriter.labels("cache", name), s.evictions()));
+        out.family("cache_rejections_total", "counter", "Candidates the admission policy turned away");
+        caches.forEach((name, s) -> out.sample("cache_rejections_total", PrometheusWriter.labels("cache", name), s.rejections()));
+    }
+
+    private void writeComponentStats(PrometheusWriter out) {
+        SearchIndex.Stats search = SearchIndex.instance().stats();
+        out.gauge("search_index_ready", "1 once the search index has been built", search.ready() ? 1 : 0);
+        out.gauge("search_index_documents", "Products in the search index", search.documents());
+        out.gauge("search_index_terms", "Distinct terms in the search index", search.terms());
+
+        ImagePipeline.Stats images = ImagePipeline.instance().stats();
+        out.gauge("image_pipeline_queue_depth", "Uploads waiting to be resized", images.queueDepth());
+        out.gauge("image_pipeline_active", "Uploads being resized", images.active());
+        out.counter("image_pipeline_processed_total", "Uploads resized", images.processed());
+        out.counter("image_pipeline_failed_total", "Uploads that could not be resized", images.failed());
+        out.counter("image_pipeline_rejected_total", "Uploads turned away because the queue was full", images.rejected());
+
+        PasswordExecutor.Stats bcrypt = PasswordExecutor.instance().stats();
+        out.gauge("bcrypt_queue_depth", "Password hashes waiting for a thread", bcrypt.queueDepth());
+        out.gauge("bcrypt_active", "Password hashes being computed", bcrypt.active());
+        out.counter("bcrypt_completed_total", "Password hashes computed", bcrypt.completed());
+        out.counter("bcrypt_rejected_total", "Password hashes turned away because the queue was full", bcrypt.rejected());
+
+        AuthThrottle.Stats throttle = AuthThrottle.instance().stats();
+        out.gauge("auth_throttle_tracked_ips", "Client addresses with a login rate limiter", throttle.trackedIps());
+        out.gauge("auth_throttle_tracked_usernames", "Usernames with a login rate limiter", throttle.trackedUsernames());
+        out.counter("auth_throttle_throttled_ip_total", "Login attempts throttled by client address", throttle.throttledByIp());
+        out.counter("auth_throttle_throttled_username_total", "Login attempts throttled by username", throttle.throttledByUsername());
+
+        out.gauge("auctions_scheduled", "Open auctions waiting for their end time", AuctionCloser.instance().scheduledCount());
+
+        BidWriter.Stats writer = BidEngine.instance().writerStats();
+        if (writer != null) {
+            out.counter("bid_writer_batches_total", "Group commits", writer.batches());
+            out.counter("bid_writer_bids_total", "Bids written by group commits", writer.bidsWritten());
+            out.counter("bid_writer_failed_batches_total", "Group commits that failed", writer.failedBatches());
+            out.counter("bid_writer_rejected_writes_total", "Queued bids rejected because their auction had changed",
+                    writer.rejectedWrites());
+            out.gauge("bid_writer_queue_depth", "Accepted bids waiting to be written", writer.queueDepth());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.nettenz.ebay.servlet;
+
+import com.nettenz.ebay.dao.PageCursor;
+import com.nettenz.ebay.util.Env;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Reads the {@code after} (page token) and {@code size} query parameters shared by paginated listings.
+ */
+public final class Pagination {
+
+    public static final int DEFAULT_PAGE_SIZE = Env.getInt("PRODUCT_PAGE_SIZE", 24);
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private Pagination() {}
+
+    /**
+     * @return the cursor to continue from, or null for the first page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageCursor cursor(HttpServletRequest req) {
+        String token = req.getParameter("after");
+        return (token == null || token.isBlank()) ? null : PageCursor.decode(token);
+    }
+
+    public static int pageSize(HttpServletRequest req) {
+        String size = req.getParameter("size");
+        if (size == null || size.isBlank()) return DEFAULT_PAGE_SIZE;
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(size)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+}
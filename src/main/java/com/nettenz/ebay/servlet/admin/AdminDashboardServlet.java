@@ -1,6 +1,6 @@
 package com.nettenz.ebay.servlet.admin;
 
-import com.nettenz.ebay.dao.StatsDao;
+import com.nettenz.ebay.stats.DashboardCounters;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -12,11 +12,11 @@ import java.io.IOException;
 @WebServlet("/admin/dashboard")
 public class AdminDashboardServlet extends HttpServlet {
 
-    private final StatsDao statsDao = new StatsDao();
+    private final DashboardCounters counters = DashboardCounters.instance();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        StatsDao.DashboardStats stats = statsDao.getStats();
+        DashboardCounters.Snapshot stats = counters.snapshot();
         req.setAttribute("stats", stats);
         req.getRequestDispatcher("/WEB-INF/jsp/admin/dashboard.jsp").forward(req, resp);
     }
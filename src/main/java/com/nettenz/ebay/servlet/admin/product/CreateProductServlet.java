@@ -1,17 +1,26 @@
 package com.nettenz.ebay.servlet.admin.product;
 
+import com.nettenz.ebay.dao.BlobDao;
 import com.nettenz.ebay.dao.DepartmentDao;
 import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.image.ImagePipeline;
+import com.nettenz.ebay.security.AuthSession;
+import com.nettenz.ebay.storage.BlobStore;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Set;
 
 @WebServlet("/products/new")
 @MultipartConfig(
@@ -21,9 +30,14 @@ import java.util.UUID;
 )
 public class CreateProductServlet extends HttpServlet {
 
+    private static final Set<Integer> DURATION_DAYS = Set.of(1, 3, 5, 7, 10);
+    private static final int DEFAULT_DURATION_DAYS = 7;
+
     private final ProductDao productDao = new ProductDao();
     private final DepartmentDao departmentDao = new DepartmentDao();
-    private static final String UPLOAD_DIR = "C:\\Users\\Emanuel\\IdeaProjects\\ebay\\uploads";
+    private final ImagePipeline imagePipeline = ImagePipeline.instance();
+    private final BlobStore blobStore = BlobStore.instance();
+    private final BlobDao blobDao = new BlobDao();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -34,17 +48,17 @@ public class CreateProductServlet extends HttpServlet {
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        HttpSession session = req.getSession(false);
-        if (session == null || session.getAttribute("auth.userId") == null) {
+        Long sellerId = (Long) req.getAttribute(AuthSession.USER_ID);
+        if (sellerId == null) {
             resp.sendRedirect(req.getContextPath() + "/login");
             return;
         }
 
-        Long sellerId = (Long) session.getAttribute("auth.userId");
         String name = req.getParameter("name");
         String description = req.getParameter("description");
         String deptIdStr = req.getParameter("departmentId");
         String startBidStr = req.getParameter("startingBid");
+        String durationStr = req.getParameter("durationDays");
         
         // Handle File Upload
         Part filePart = req.getPart("imageFile");
@@ -56,24 +70,46 @@ public class CreateProductServlet extends HttpServlet {
             return;
         }
 
+        int durationDays = DEFAULT_DURATION_DAYS;
+        if (!isEmpty(durationStr)) {
+            try {
+                durationDays = Integer.parseInt(durationStr);
+            } catch (NumberFormatException e) {
+                durationDays = -1;
+            }
+        }
+        if (!DURATION_DAYS.contains(durationDays)) {
+            req.setAttribute("error", "Invalid auction duration.");
+            doGet(req, resp);
+            return;
+        }
+
         try {
             // Process Image
             String finalImageIdentifier = null;
+            Path uploadedFile = null;
             
             // Priority 1: File Upload
             if (filePart != null && filePart.getSize() > 0 && filePart.getSubmittedFileName() != null && !filePart.getSubmittedFileName().isBlank()) {
-                String fileName = Paths.get(filePart.getSubmittedFileName()).getFileName().toString();
-                String uniqueFileName = UUID.randomUUID().toString() + "_" + fileName;
-                
-                // Ensure dir exists
-                File uploadDir = new File(UPLOAD_DIR);
-                if (!uploadDir.exists()) uploadDir.mkdirs();
-                
-                // Write file
-                filePart.write(UPLOAD_DIR + File.separator + uniqueFileName);
-                
+                String extension = imageExtension(filePart.getSubmittedFileName());
+                if (extension == null) {
+                    req.setAttribute("error", "Unsupported image type. Upload a JPEG, PNG, GIF or WebP file.");
+                    doGet(req, resp);
+                    return;
+                }
+
+                // Stored under its content hash; identical images share one file
+                BlobStore.StoredBlob blob;
+                try (InputStream in = filePart.getInputStream();
+                     BlobStore.Upload upload = blobStore.put(in, extension)) {
+                    blob = upload.blob();
+                    blobDao.recordUpload(blob.key(), blob.size());
+                    upload.commit(); // restores the file if the orphan collector removed it before the row was recorded
+                }
+                uploadedFile = blobStore.locate(blob.key());
+
                 // Store relative path identifier
-                finalImageIdentifier = "/images/" + uniqueFileName;
+                finalImageIdentifier = "/images/" + blob.key();
                 
             } else if (!isEmpty(imageUrl)) {
                 // Priority 2: External URL
@@ -82,8 +118,16 @@ public class CreateProductServlet extends HttpServlet {
 
             Long departmentId = (deptIdStr != null && !deptIdStr.isBlank()) ? Long.valueOf(deptIdStr) : null;
             BigDecimal startingBid = new BigDecimal(startBidStr);
+            // Whole seconds: the column has no fractional part, and the closer schedules this exact value
+            Timestamp endsAt = Timestamp.from(Instant.now().plus(durationDays, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS));
 
-            productDao.create(sellerId, departmentId, name, description, finalImageIdentifier, startingBid);
+            long productId = productDao.create(sellerId, departmentId, name, description, finalImageIdentifier,
+                    startingBid, endsAt);
+
+            // Card/detail sizes are generated in the background; pages use the original until they exist
+            if (uploadedFile != null) {
+                imagePipeline.submit(productId, uploadedFile);
+            }
 
             resp.sendRedirect(req.getContextPath() + "/products");
 
@@ -97,6 +141,20 @@ public class CreateProductServlet extends HttpServlet {
         }
     }
 
+    /**
+     * @return the normalized extension of a supported image file name, or null
+     */
+    private String imageExtension(String submittedFileName) {
+        String fileName = Paths.get(submittedFileName).getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String ext = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return switch (ext) {
+            case "jpg", "jpeg" -> "jpg";
+            case "png", "gif", "webp" -> ext;
+            default -> null;
+        };
+    }
+
     private boolean isEmpty(String s) {
         return s == null || s.isBlank();
     }
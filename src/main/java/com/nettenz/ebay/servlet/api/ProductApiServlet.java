@@ -0,0 +1,189 @@
+package com.nettenz.ebay.servlet.api;
+
+import com.nettenz.ebay.dao.BidDao;
+import com.nettenz.ebay.dao.PageCursor;
+import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.image.ImageVariant;
+import com.nettenz.ebay.servlet.Pagination;
+import com.nettenz.ebay.util.JsonWriter;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Read-only JSON API for products, version 1.
+ *
+ * <ul>
+ *   <li>{@code GET /api/v1/products?after=&size=} — listing, newest first</li>
+ *   <li>{@code GET /api/v1/products/{id}} — one product</li>
+ *   <li>{@code GET /api/v1/products/{id}/bids?after=&size=} — its bids, newest first</li>
+ * </ul>
+ *
+ * <p>Lists are paginated with the opaque {@code next} token, passed back as {@code after}. Rows are
+ * written to the response as they come off the result set. The response buffer is sized to hold a whole
+ * page, so the client's download speed never holds a database connection, and the ETag can be computed
+ * over the body before anything is sent; a matching {@code If-None-Match} gets an empty 304. Bid history
+ * revalidates before querying bids at all: its tag is derived from the product's bid count.</p>
+ */
+@WebServlet("/api/v1/products/*")
+public class ProductApiServlet extends HttpServlet {
+
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
+    private final ProductDao productDao = new ProductDao();
+    private final BidDao bidDao = new BidDao();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String pathInfo = req.getPathInfo();
+        String[] parts = (pathInfo == null || pathInfo.equals("/")) ? new String[0] : pathInfo.substring(1).split("/");
+
+        PageCursor after;
+        try {
+            after = Pagination.cursor(req);
+        } catch (IllegalArgumentException e) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid page token");
+            return;
+        }
+        if (parts.length == 0) {
+            listProducts(req, resp, after);
+            return;
+        }
+
+        long productId;
+        try {
+            productId = Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "Not found");
+            return;
+        }
+        if (parts.length == 1) {
+            product(req, resp, productId);
+        } else if (parts.length == 2 && parts[1].equals("bids")) {
+            bids(req, resp, productId, after);
+        } else {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "Not found");
+        }
+    }
+
+    private void listProducts(HttpServletRequest req, HttpServletResponse resp, PageCursor after) throws IOException {
+        CRC32 crc = new CRC32();
+        JsonWriter json = begin(resp, crc);
+        json.beginObject().name("items").beginArray();
+        PageCursor next = productDao.streamPage(after, Pagination.pageSize(req), p -> writeProduct(req, json, p, false));
+        json.endArray().field("next", next != null ? next.encode() : null).endObject();
+        finish(req, resp, json, crc);
+    }
+
+    private void product(HttpServletRequest req, HttpServletResponse resp, long productId) throws IOException {
+        ProductDao.ProductDto product = productDao.findById(productId);
+        if (product == null) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "Product not found");
+            return;
+        }
+        CRC32 crc = new CRC32();
+        JsonWriter json = begin(resp, crc);
+        writeProduct(req, json, product, true);
+        finish(req, resp, json, crc);
+    }
+
+    private void bids(HttpServletRequest req, HttpServletResponse resp, long productId, PageCursor after) throws IOException {
+        ProductDao.ProductDto product = productDao.findById(productId);
+        if (product == null) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "Product not found");
+            return;
+        }
+        // Bids are only ever appended, so the count identifies the history; the query string selects the page
+        String query = req.getQueryString();
+        String etag = "\"b" + productId + "." + product.bidCount() + "." + Integer.toHexString(query == null ? 0 : query.hashCode()) + "\"";
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", "no-cache");
+        if (matches(req, etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        JsonWriter json = begin(resp, null);
+        json.beginObject().field("productId", productId).field("bidCount", product.bidCount()).name("items").beginArray();
+        PageCursor next = bidDao.streamHistory(productId, after, Pagination.pageSize(req), b -> json.beginObject()
+                .field("id", b.id())
+                .field("bidderId", b.bidderId())
+                .field("bidder", b.bidderName())
+                .field("amount", b.amount())
+                .field("createdAt", b.createdAt())
+                .endObject());
+        json.endArray().field("next", next != null ? next.encode() : null).endObject();
+        json.flush();
+    }
+
+    private static void writeProduct(HttpServletRequest req, JsonWriter json, ProductDao.ProductDto p, boolean detail) throws IOException {
+        json.beginObject()
+                .field("id", p.id())
+                .field("name", p.name());
+        if (detail) {
+            json.field("description", p.description());
+        }
+        json.field("sellerId", p.sellerId())
+                .field("seller", p.sellerName())
+                .field("startingBid", p.startingBid())
+                .field("currentPrice", p.currentPrice())
+                .field("bidCount", p.bidCount())
+                .field("highBidderId", p.highBidderId())
+                .field("image", p.imageSrc(req.getContextPath(), detail ? ImageVariant.DETAIL : ImageVariant.CARD))
+                .field("createdAt", p.createdAt())
+                .field("endsAt", p.endsAt())
+                .field("closed", p.closedAt() != null)
+                .field("winnerId", p.winnerId())
+                .endObject();
+    }
+
+    /**
+     * Starts a JSON body, optionally checksumming the encoded bytes for the ETag.
+     */
+    private static JsonWriter begin(HttpServletResponse resp, CRC32 crc) throws IOException {
+        resp.setBufferSize(RESPONSE_BUFFER_SIZE);
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        OutputStream out = crc != null ? new CheckedOutputStream(resp.getOutputStream(), crc) : resp.getOutputStream();
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192));
+    }
+
+    /**
+     * Sets the ETag of the buffered body, or replaces the body with a 304 if the client already has it.
+     * A body too large for the response buffer has already started going out and is sent without a tag.
+     */
+    private static void finish(HttpServletRequest req, HttpServletResponse resp, JsonWriter json, CRC32 crc) throws IOException {
+        json.flush();
+        if (resp.isCommitted()) {
+            return;
+        }
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "\"";
+        resp.setHeader("ETag", etag);
+        if (matches(req, etag)) {
+            resp.resetBuffer();
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+    }
+
+    private static boolean matches(HttpServletRequest req, String etag) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        return ifNoneMatch != null && ifNoneMatch.contains(etag);
+    }
+
+    private static void error(HttpServletResponse resp, int status, String message) throws IOException {
+        resp.setStatus(status);
+        JsonWriter json = begin(resp, null);
+        json.beginObject().field("error", message).endObject();
+        json.flush();
+    }
+}
@@ -1,16 +1,21 @@
 package com.nettenz.ebay.servlet.auth;
 
 import com.nettenz.ebay.dao.UserDao;
-import com.nettenz.ebay.util.PasswordUtil;
+import com.nettenz.ebay.security.AuthSession;
+import com.nettenz.ebay.security.AuthThrottle;
+import com.nettenz.ebay.security.PasswordExecutor;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebServlet("/login")
 public class LoginServlet extends HttpServlet {
 
     private final UserDao userDao = new UserDao();
+    private final AuthThrottle throttle = AuthThrottle.instance();
+    private final PasswordExecutor passwords = PasswordExecutor.instance();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
@@ -35,8 +40,21 @@ public class LoginServlet extends HttpServlet {
             return;
         }
 
+        long retryAfterMillis = throttle.tryAcquire(req, username);
+        if (retryAfterMillis > 0) {
+            tooManyRequests(req, resp, retryAfterMillis);
+            return;
+        }
+
         var user = userDao.findByUsername(username);
-        if (user == null || !PasswordUtil.verify(password, user.passwordHash())) {
+        boolean valid;
+        try {
+            valid = user != null && passwords.verify(password, user.passwordHash());
+        } catch (RejectedExecutionException e) {
+            tooManyRequests(req, resp, 1000);
+            return;
+        }
+        if (!valid) {
             req.setAttribute("error", "Invalid credentials.");
             try {
                 req.getRequestDispatcher("/WEB-INF/jsp/auth/login.jsp").forward(req, resp);
@@ -44,10 +62,7 @@ public class LoginServlet extends HttpServlet {
             return;
         }
 
-        HttpSession session = req.getSession(true);
-        session.setAttribute("auth.userId", user.userId());
-        session.setAttribute("auth.username", user.username());
-        session.setAttribute("auth.role", user.role()); // "USER" or "ADMIN"
+        AuthSession.instance().login(req, resp, user.userId(), user.username(), user.role());
 
         // Safe-ish redirect: allow only relative paths
         if (returnTo != null && !returnTo.isBlank() && returnTo.startsWith("/")) {
@@ -56,4 +71,15 @@ public class LoginServlet extends HttpServlet {
             resp.sendRedirect(req.getContextPath() + "/");
         }
     }
+
+    static void tooManyRequests(HttpServletRequest req, HttpServletResponse resp, long retryAfterMillis) {
+        long seconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        resp.setStatus(429);
+        resp.setHeader("Retry-After", Long.toString(seconds));
+        req.setAttribute("error", "Too many attempts. Please try again in " + seconds + (seconds == 1 ? " second." : " seconds."));
+        String page = req.getServletPath().equals("/register") ? "register.jsp" : "login.jsp";
+        try {
+            req.getRequestDispatcher("/WEB-INF/jsp/auth/" + page).forward(req, resp);
+        } catch (Exception ignored) {}
+    }
 }
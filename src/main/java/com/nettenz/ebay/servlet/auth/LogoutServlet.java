@@ -1,5 +1,6 @@
 package com.nettenz.ebay.servlet.auth;
 
+import com.nettenz.ebay.security.AuthSession;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 
@@ -9,8 +10,7 @@ import java.io.IOException;
 public class LogoutServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        HttpSession s = req.getSession(false);
-        if (s != null) s.invalidate();
+        AuthSession.instance().logout(req, resp);
         resp.sendRedirect(req.getContextPath() + "/login");
     }
 }
@@ -1,17 +1,21 @@
 package com.nettenz.ebay.servlet.auth;
 
 import com.nettenz.ebay.dao.UserDao;
-import com.nettenz.ebay.util.PasswordUtil;
+import com.nettenz.ebay.security.AuthThrottle;
+import com.nettenz.ebay.security.PasswordExecutor;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebServlet("/register")
 public class RegisterServlet extends HttpServlet {
 
     private final UserDao userDao = new UserDao();
+    private final AuthThrottle throttle = AuthThrottle.instance();
+    private final PasswordExecutor passwords = PasswordExecutor.instance();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -35,17 +39,30 @@ public class RegisterServlet extends HttpServlet {
             return;
         }
 
-        // 2. Business Validation (Duplicates)
+        // 2. Throttle per client (no username: it does not exist yet)
+        long retryAfterMillis = throttle.tryAcquire(req, null);
+        if (retryAfterMillis > 0) {
+            LoginServlet.tooManyRequests(req, resp, retryAfterMillis);
+            return;
+        }
+
+        // 3. Business Validation (Duplicates)
         if (userDao.existsByUsername(username)) {
             fail(req, resp, "Username is already taken.");
             return;
         }
 
-        // 3. Create User
-        String hash = PasswordUtil.hash(password);
+        // 4. Create User
+        String hash;
+        try {
+            hash = passwords.hash(password);
+        } catch (RejectedExecutionException e) {
+            LoginServlet.tooManyRequests(req, resp, 1000);
+            return;
+        }
         userDao.create(username, hash, "USER");
 
-        // 4. Redirect to Login
+        // 5. Redirect to Login
         resp.sendRedirect(req.getContextPath() + "/login?registered=true");
     }
 
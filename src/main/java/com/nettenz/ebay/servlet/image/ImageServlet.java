@@ -1,25 +1,45 @@
 package com.nettenz.ebay.servlet.image;
 
+import com.nettenz.ebay.image.ImageVariant;
+import com.nettenz.ebay.servlet.FileResponses;
+import com.nettenz.ebay.storage.BlobStore;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
+/**
+ * Serves uploaded product images.
+ *
+ * <p>Uploads are named by content hash (see {@link BlobStore}) and never rewritten, so responses are
+ * cacheable forever and the validators only need to catch a replaced file. {@code ?size=card|detail} selects a
+ * resized {@link ImageVariant}; until it has been generated the original is served, cached only briefly.</p>
+ */
 @WebServlet("/images/*")
 public class ImageServlet extends HttpServlet {
 
-    // Hardcoded for this environment as per session context
-    private static final String UPLOAD_DIR = "C:\\Users\\Emanuel\\IdeaProjects\\ebay\\uploads";
+    private static final String CACHE_FALLBACK = "public, max-age=300";
+
+    private final BlobStore blobStore = BlobStore.instance();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        serve(req, resp, true);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        serve(req, resp, false);
+    }
+
+    private void serve(HttpServletRequest req, HttpServletResponse resp, boolean sendBody) throws IOException {
         String filename = req.getPathInfo();
         
         if (filename == null || filename.equals("/")) {
@@ -27,33 +47,52 @@ public class ImageServlet extends HttpServlet {
             return;
         }
 
-        // Remove leading slash
-        filename = filename.substring(1);
-        
-        File file = new File(UPLOAD_DIR, filename);
+        ImageVariant variant;
+        try {
+            variant = ImageVariant.fromParam(req.getParameter("size"));
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
 
-        if (!file.exists()) {
+        // Remove leading slash; the store only resolves well-formed names, never paths
+        String name = filename.substring(1);
+        Path original = blobStore.locate(name);
+        if (original == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = blobStore.locate(variant.fileName(name));
+        String cacheControl = FileResponses.CACHE_IMMUTABLE;
+        BasicFileAttributes attrs = regularFileAttributes(file);
+        if (attrs == null && variant != ImageVariant.ORIGINAL) {
+            file = original;
+            cacheControl = CACHE_FALLBACK;
+            attrs = regularFileAttributes(file);
+        }
+        if (attrs == null) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
 
         // Detect content type
-        String mimeType = getServletContext().getMimeType(file.getName());
+        String mimeType = getServletContext().getMimeType(file.getFileName().toString());
         if (mimeType == null) {
             mimeType = "application/octet-stream";
         }
-        resp.setContentType(mimeType);
-        resp.setContentLength((int) file.length());
-
-        // Stream file
-        try (FileInputStream in = new FileInputStream(file);
-             OutputStream out = resp.getOutputStream()) {
-            
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-            }
+
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(attrs.size()) + "-" + Long.toHexString(lastModified) + "\"";
+        FileResponses.send(req, resp, file, attrs.size(), lastModified, mimeType, etag, cacheControl, sendBody);
+    }
+
+    private static BasicFileAttributes regularFileAttributes(Path file) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return attrs.isRegularFile() ? attrs : null;
+        } catch (NoSuchFileException e) {
+            return null;
         }
     }
 }
@@ -1,13 +1,14 @@
 package com.nettenz.ebay.servlet.product;
 
-import com.nettenz.ebay.dao.BidDao;
-import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.auction.BidEngine;
+import com.nettenz.ebay.auction.BidResult;
+import com.nettenz.ebay.event.ProductEventHub;
+import com.nettenz.ebay.security.AuthSession;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -15,15 +16,14 @@ import java.math.BigDecimal;
 @WebServlet("/bid")
 public class PlaceBidServlet extends HttpServlet {
 
-    private final ProductDao productDao = new ProductDao();
-    private final BidDao bidDao = new BidDao();
+    private final BidEngine bidEngine = BidEngine.instance();
+    private final ProductEventHub eventHub = ProductEventHub.instance();
+    private final AuthSession authSession = AuthSession.instance();
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        HttpSession session = req.getSession(false);
-        
         // Must be logged in
-        Long userId = (session != null) ? (Long) session.getAttribute("auth.userId") : null;
+        Long userId = (Long) req.getAttribute(AuthSession.USER_ID);
         if (userId == null) {
             resp.sendRedirect(req.getContextPath() + "/login");
             return;
@@ -48,31 +48,44 @@ public class PlaceBidServlet extends HttpServlet {
             return;
         }
 
-        // Get product
-        ProductDao.ProductDto product = productDao.findById(productId);
-        if (product == null) {
+        BidResult result = bidEngine.placeBid(productId, userId, bidAmount);
+        if (result.outcome() == BidResult.Outcome.NOT_FOUND) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Product not found");
             return;
         }
 
-        // Business Rule: Seller cannot bid on their own item
-        if (product.sellerId().equals(userId)) {
-            req.getSession().setAttribute("bidError", "You cannot bid on your own item");
-            resp.sendRedirect(req.getContextPath() + "/products/" + productId);
-            return;
-        }
-
-        // Business Rule: Bid must be greater than current price
-        if (bidAmount.compareTo(product.currentPrice()) <= 0) {
-            req.getSession().setAttribute("bidError", "Bid must be greater than $" + product.currentPrice());
-            resp.sendRedirect(req.getContextPath() + "/products/" + productId);
-            return;
+        String username = (String) req.getAttribute(AuthSession.USERNAME);
+        switch (result.outcome()) {
+            case ACCEPTED -> {
+                eventHub.publishBid(productId, result.currentPrice(), result.state().bidCount(),
+                        username, result.currentPrice());
+                authSession.flash(req, resp, "bidSuccess", "You are the highest bidder at $" + result.currentPrice()
+                        + ". We will bid for you up to your maximum of $" + bidAmount);
+            }
+            case RAISED -> authSession.flash(req, resp, "bidSuccess",
+                    "Your maximum bid is now $" + bidAmount + ". You are still the highest bidder");
+            case OUTBID -> {
+                // The leader's answer is the last visible bid, placed automatically
+                eventHub.publishBid(productId, result.currentPrice(), result.state().bidCount(),
+                        null, result.currentPrice());
+                authSession.flash(req, resp, "bidError",
+                        "You have been outbid by another bidder's maximum bid. Current bid is $" + result.currentPrice());
+            }
+            // Business Rule: No bids once the auction has ended
+            case CLOSED -> authSession.flash(req, resp, "bidError", "This auction has ended");
+            // Business Rule: Seller cannot bid on their own item
+            case OWN_ITEM -> authSession.flash(req, resp, "bidError", "You cannot bid on your own item");
+            // Business Rule: Bid must be greater than current price (and the high bidder's own maximum)
+            case TOO_LOW -> authSession.flash(req, resp, "bidError", isHighBidder(result, userId)
+                    ? "You are already the highest bidder. Enter more than your maximum of $"
+                            + result.state().highBidderMax() + " to raise it"
+                    : "Bid must be greater than $" + result.currentPrice());
+            default -> throw new IllegalStateException("Unexpected bid outcome " + result.outcome());
         }
-
-        // Place the bid
-        bidDao.placeBid(productId, userId, bidAmount);
-        
-        req.getSession().setAttribute("bidSuccess", "Bid placed successfully for $" + bidAmount);
         resp.sendRedirect(req.getContextPath() + "/products/" + productId);
     }
+
+    private static boolean isHighBidder(BidResult result, Long userId) {
+        return result.state() != null && userId.equals(result.state().highBidderId());
+    }
 }
@@ -1,7 +1,11 @@
 package com.nettenz.ebay.servlet.product;
 
+import com.nettenz.ebay.cache.ProductCache;
 import com.nettenz.ebay.dao.BidDao;
 import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.event.ProductEventHub;
+import com.nettenz.ebay.security.AuthSession;
+import com.nettenz.ebay.util.TaskScope;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -10,12 +14,14 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Supplier;
 
-@WebServlet("/products/*")
+@WebServlet(urlPatterns = "/products/*", asyncSupported = true)
 public class ProductDetailServlet extends HttpServlet {
 
-    private final ProductDao productDao = new ProductDao();
-    private final BidDao bidDao = new BidDao();
+    private final ProductCache productCache = ProductCache.instance();
+    private final ProductEventHub eventHub = ProductEventHub.instance();
+    private final AuthSession authSession = AuthSession.instance();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -29,13 +35,15 @@ public class ProductDetailServlet extends HttpServlet {
 
         // Parse product ID from path: /products/123
         String idStr = pathInfo.substring(1); // Remove leading slash
+        String subPath = null;
         
         // Handle /products/123/bid route - redirect to GET (bid is POST only)
         if (idStr.contains("/")) {
+            subPath = idStr.substring(idStr.indexOf('/') + 1);
             idStr = idStr.split("/")[0];
         }
 
-        Long productId;
+        long productId;
         try {
             productId = Long.parseLong(idStr);
         } catch (NumberFormatException e) {
@@ -43,16 +51,42 @@ public class ProductDetailServlet extends HttpServlet {
             return;
         }
 
-        ProductDao.ProductDto product = productDao.findById(productId);
+        // Live updates: /products/123/events (Server-Sent Events)
+        if ("events".equals(subPath)) {
+            if (!eventHub.subscribe(productId, req, resp)) {
+                resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many live connections");
+            }
+            return;
+        }
+
+        // Only what the cache lacks is loaded. When both miss, the independent lookups run concurrently,
+        // so the page waits for the slower query, not both in turn.
+        ProductDao.ProductDto product = productCache.cachedProduct(productId);
+        List<BidDao.BidDto> bidHistory = productCache.cachedBidHistory(productId);
+        if (product == null && bidHistory == null) {
+            try (TaskScope scope = TaskScope.open()) {
+                Supplier<ProductDao.ProductDto> productTask = scope.fork(() -> productCache.product(productId));
+                Supplier<List<BidDao.BidDto>> bidsTask = scope.fork(() -> productCache.bidHistory(productId));
+                scope.join();
+                product = productTask.get();
+                bidHistory = bidsTask.get();
+            }
+        } else if (product == null) {
+            product = productCache.product(productId);
+        }
         if (product == null) {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
+        if (bidHistory == null) {
+            bidHistory = productCache.bidHistory(productId);
+        }
 
-        List<BidDao.BidDto> bidHistory = bidDao.getBidHistory(productId);
-        
         req.setAttribute("product", product);
         req.setAttribute("bidHistory", bidHistory);
+        // Flash messages from PlaceBidServlet; taken here, before the page starts streaming
+        req.setAttribute("bidError", authSession.takeFlash(req, resp, "bidError"));
+        req.setAttribute("bidSuccess", authSession.takeFlash(req, resp, "bidSuccess"));
         req.getRequestDispatcher("/WEB-INF/jsp/product/detail.jsp").forward(req, resp);
     }
 }
@@ -1,6 +1,8 @@
 package com.nettenz.ebay.servlet.product;
 
+import com.nettenz.ebay.dao.PageCursor;
 import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.servlet.Pagination;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -8,7 +10,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.util.List;
 
 @WebServlet("/products")
 public class ProductListServlet extends HttpServlet {
@@ -17,8 +18,17 @@ public class ProductListServlet extends HttpServlet {
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        List<ProductDao.ProductDto> products = productDao.findAll();
-        req.setAttribute("products", products);
+        PageCursor after;
+        try {
+            after = Pagination.cursor(req);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid page token");
+            return;
+        }
+
+        ProductDao.ProductPage page = productDao.findPage(after, Pagination.pageSize(req));
+        req.setAttribute("products", page.items());
+        req.setAttribute("nextPageToken", page.nextToken());
         req.getRequestDispatcher("/WEB-INF/jsp/product/list.jsp").forward(req, resp);
     }
 }
@@ -0,0 +1,129 @@
+package com.nettenz.ebay.servlet.search;
+
+import com.nettenz.ebay.cache.ProductCache;
+import com.nettenz.ebay.dao.DepartmentDao;
+import com.nettenz.ebay.dao.ProductDao;
+import com.nettenz.ebay.search.SearchIndex;
+import com.nettenz.ebay.servlet.Pagination;
+import com.nettenz.ebay.util.Json;
+import com.nettenz.ebay.util.TaskScope;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Product search page ({@code /search?q=...&dept=...}) and typeahead suggestions
+ * ({@code /search/suggest?q=...}, JSON).
+ */
+@WebServlet(urlPatterns = {"/search", "/search/suggest"})
+public class SearchServlet extends HttpServlet {
+
+    private static final int SUGGESTION_LIMIT = 8;
+
+    private final SearchIndex searchIndex = SearchIndex.instance();
+    private final ProductCache productCache = ProductCache.instance();
+    private final DepartmentDao departmentDao = new DepartmentDao();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String query = req.getParameter("q");
+
+        if ("/search/suggest".equals(req.getServletPath())) {
+            writeSuggestions(resp, searchIndex.search(query, null, SUGGESTION_LIMIT));
+            return;
+        }
+
+        Long departmentId = null;
+        String deptStr = req.getParameter("dept");
+        if (deptStr != null && !deptStr.isBlank()) {
+            try {
+                departmentId = Long.valueOf(deptStr);
+            } catch (NumberFormatException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid department");
+                return;
+            }
+        }
+
+        SearchIndex.Result result = searchIndex.search(query, departmentId, Pagination.pageSize(req));
+
+        // Department names load alongside the hits, which are usually cache hits; the misses take one query
+        List<ProductDao.ProductDto> products;
+        List<DepartmentFacet> facets;
+        try (TaskScope scope = TaskScope.open()) {
+            Supplier<List<DepartmentFacet>> facetsTask = scope.fork(() -> facets(result));
+            Supplier<List<ProductDao.ProductDto>> productsTask = scope.fork(() -> products(result));
+            scope.join();
+            products = productsTask.get();
+            facets = facetsTask.get();
+        }
+
+        req.setAttribute("query", query != null ? query : "");
+        req.setAttribute("departmentId", departmentId);
+        req.setAttribute("products", products);
+        req.setAttribute("facets", facets);
+        req.setAttribute("totalMatches", result.totalMatches());
+        req.setAttribute("tookMillis", result.tookMillis());
+        req.setAttribute("indexReady", searchIndex.isReady());
+        req.getRequestDispatcher("/WEB-INF/jsp/product/search.jsp").forward(req, resp);
+    }
+
+    private List<ProductDao.ProductDto> products(SearchIndex.Result result) {
+        List<Long> ids = new ArrayList<>(result.hits().size());
+        for (SearchIndex.Hit hit : result.hits()) {
+            ids.add(hit.productId());
+        }
+        Map<Long, ProductDao.ProductDto> byId = productCache.products(ids); // one query for all misses
+        List<ProductDao.ProductDto> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductDao.ProductDto p = byId.get(id);
+            if (p != null) {
+                products.add(p);
+            }
+        }
+        return products;
+    }
+
+    private List<DepartmentFacet> facets(SearchIndex.Result result) {
+        List<DepartmentFacet> facets = new ArrayList<>();
+        if (result.departmentCounts().isEmpty()) {
+            return facets;
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (DepartmentDao.DepartmentRecord d : departmentDao.findAll()) {
+            names.put(d.id(), d.name());
+        }
+        for (Map.Entry<Long, Integer> e : result.departmentCounts().entrySet()) {
+            String name = names.get(e.getKey());
+            if (name != null) {
+                facets.add(new DepartmentFacet(e.getKey(), name, e.getValue()));
+            }
+        }
+        return facets;
+    }
+
+    private void writeSuggestions(HttpServletResponse resp, SearchIndex.Result result) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        PrintWriter out = resp.getWriter();
+        out.print('[');
+        for (int i = 0; i < result.hits().size(); i++) {
+            SearchIndex.Hit hit = result.hits().get(i);
+            if (i > 0) out.print(',');
+            out.print("{\"id\":" + hit.productId() + ",\"name\":" + Json.quote(hit.name()) + "}");
+        }
+        out.print(']');
+    }
+
+    public record DepartmentFacet(long id, String name, int count) {}
+}
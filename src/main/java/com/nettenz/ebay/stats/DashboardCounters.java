@@ -0,0 +1,121 @@
+package com.nettenz.ebay.stats;
+
+import com.nettenz.ebay.dao.StatsDao;
+import com.nettenz.ebay.util.Env;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Admin dashboard totals and rates, maintained in memory as users, products and bids are created.
+ *
+ * <p>Totals are seeded from {@link StatsDao} and periodically reconciled against it to absorb writes
+ * made by other nodes; in between, reading them costs nothing. Rates come from sliding windows
+ * and only reflect activity seen by this node.</p>
+ */
+public final class DashboardCounters {
+
+    private static final Logger LOG = Logger.getLogger(DashboardCounters.class.getName());
+
+    private static final DashboardCounters INSTANCE = new DashboardCounters(
+            new StatsDao(), Env.getLong("DASHBOARD_RECONCILE_MS", 300_000));
+
+    private final StatsDao statsDao;
+    private final long reconcileMillis;
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong bids = new AtomicLong();
+    private volatile boolean seeded;
+
+    private final SlidingWindowCounter bidsPerMinute = new SlidingWindowCounter(60, 1_000);
+    private final SlidingWindowCounter listingsPerHour = new SlidingWindowCounter(60, 60_000);
+
+    private ScheduledExecutorService reconciler;
+
+    DashboardCounters(StatsDao statsDao, long reconcileMillis) {
+        this.statsDao = statsDao;
+        this.reconcileMillis = reconcileMillis;
+    }
+
+    public static DashboardCounters instance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (reconciler != null) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, 0, reconcileMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+            reconciler = null;
+        }
+    }
+
+    public void userCreated() {
+        users.incrementAndGet();
+    }
+
+    public void productCreated() {
+        products.incrementAndGet();
+        listingsPerHour.increment();
+    }
+
+    public void bidsPlaced(int count) {
+        bids.addAndGet(count);
+        for (int i = 0; i < count; i++) {
+            bidsPerMinute.increment();
+        }
+    }
+
+    public Snapshot snapshot() {
+        if (!seeded) {
+            reconcile();
+        }
+        return new Snapshot(users.get(), products.get(), bids.get(), bidsPerMinute.sum(), listingsPerHour.sum());
+    }
+
+    /**
+     * Replaces the totals with the database counts. Increments that land while the query runs are kept,
+     * so the result is at worst off by the writes that raced with it, until the next reconcile.
+     */
+    public synchronized void reconcile() {
+        long u0 = users.get();
+        long p0 = products.get();
+        long b0 = bids.get();
+        StatsDao.DashboardStats db = statsDao.getStats();
+        users.addAndGet(db.userCount() - u0);
+        products.addAndGet(db.productCount() - p0);
+        bids.addAndGet(db.bidCount() - b0);
+        seeded = true;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Dashboard counter reconcile failed", e);
+        }
+    }
+
+    public record Snapshot(
+            long userCount,
+            long productCount,
+            long bidCount,
+            long bidsLastMinute,
+            long listingsLastHour
+    ) {}
+}
@@ -0,0 +1,47 @@
+package com.nettenz.ebay.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free count of events over a sliding time window, kept as a ring of fixed-width buckets.
+ *
+ * <p>Each bucket remembers which time slot it currently counts; a writer landing in a bucket that still
+ * holds an old slot resets it first. The sum covers the last {@code buckets} slots, so the window
+ * slides in steps of one bucket width. An increment racing with a bucket reset can be lost, which is
+ * fine for dashboard rates.</p>
+ */
+public final class SlidingWindowCounter {
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray slots;
+
+    public SlidingWindowCounter(int buckets, long bucketMillis) {
+        this.buckets = buckets;
+        this.bucketMillis = bucketMillis;
+        this.counts = new AtomicLongArray(buckets);
+        this.slots = new AtomicLongArray(buckets);
+    }
+
+    public void increment() {
+        long slot = System.currentTimeMillis() / bucketMillis;
+        int i = (int) (slot % buckets);
+        long seen = slots.get(i);
+        if (seen != slot && slots.compareAndSet(i, seen, slot)) {
+            counts.set(i, 0);
+        }
+        counts.incrementAndGet(i);
+    }
+
+    public long sum() {
+        long current = System.currentTimeMillis() / bucketMillis;
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            if (current - slots.get(i) < buckets) {
+                total += counts.get(i);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,82 @@
+package com.nettenz.ebay.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Content-addressed storage for uploaded files.
+ *
+ * <p>A blob's key is the SHA-256 of its content plus a file extension, so storing the same bytes twice
+ * yields the same key and one copy on disk. Files derived from a blob (such as resized image variants)
+ * are named with the blob key as prefix and live alongside it.</p>
+ */
+public interface BlobStore {
+
+    static BlobStore instance() {
+        return FileSystemBlobStore.INSTANCE;
+    }
+
+    /**
+     * Streams {@code content} into the store, hashing it on the way. The blob can be read as soon as this
+     * returns. Record the upload, then {@link Upload#commit} it, then close it.
+     *
+     * @param extension lower-case file extension without the dot, e.g. {@code jpg}
+     */
+    Upload put(InputStream content, String extension) throws IOException;
+
+    /**
+     * Local file for a blob key or a name derived from one.
+     *
+     * @return null if {@code name} is not a valid blob or derived-file name
+     */
+    Path locate(String name);
+
+    /**
+     * Starts deleting a blob: moves it and every file derived from it out of sight. From here on, an identical
+     * upload stores a fresh copy instead of deduplicating onto files that are about to go. The caller then
+     * deletes the blob's row and either {@link Removal#commit commits} the removal or, if the row survived,
+     * {@link Removal#rollback rolls it back}.
+     */
+    Removal beginDelete(String key) throws IOException;
+
+    /**
+     * A stored upload. If the content was already in the store, the upload keeps its own copy until it is
+     * closed. The garbage collector may remove the blob between {@link #put} and the upload's row being
+     * recorded, and {@link #commit} then puts the blob back.
+     */
+    interface Upload extends AutoCloseable {
+
+        StoredBlob blob();
+
+        /**
+         * Makes sure the blob's file exists. Call it once the upload is recorded, after which the collector
+         * leaves the blob alone.
+         */
+        void commit() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Files set aside by {@link #beginDelete}.
+     */
+    interface Removal {
+
+        /**
+         * Deletes the files for good.
+         */
+        void commit() throws IOException;
+
+        /**
+         * Moves the files back, except where an upload has stored the blob again in the meantime.
+         */
+        void rollback() throws IOException;
+    }
+
+    /**
+     * @param deduplicated true if identical content was already stored and nothing new was written
+     */
+    record StoredBlob(String key, long size, boolean deduplicated) {}
+}
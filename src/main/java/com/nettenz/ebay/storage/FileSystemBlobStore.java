@@ -0,0 +1,188 @@
+package com.nettenz.ebay.storage;
+
+import com.nettenz.ebay.util.Env;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} on the local filesystem under {@code IMAGE_STORE_DIR}.
+ *
+ * <p>Blobs are sharded two levels deep by the leading hex digits of their hash
+ * ({@code ab/cd/abcd....jpg}), which keeps every directory small no matter how many uploads there are.
+ * Uploads are written to a temporary file in the same filesystem and renamed into place, so readers never
+ * see a partial blob. Files uploaded before content addressing ({@code UUID_name}) sit directly in the root
+ * and are still served from there.</p>
+ */
+public final class FileSystemBlobStore implements BlobStore {
+
+    static final FileSystemBlobStore INSTANCE = new FileSystemBlobStore(Paths.get(Env.get("IMAGE_STORE_DIR", "uploads")));
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,5}");
+    private static final Pattern DERIVED = Pattern.compile("([0-9a-f]{64}\\.[a-z0-9]{1,5})(\\.[a-z0-9]+)*");
+    private static final Pattern LEGACY = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private final Path root;
+    private final Path tmpDir;
+
+    FileSystemBlobStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.tmpDir = this.root.resolve("tmp");
+    }
+
+    @Override
+    public Upload put(InputStream content, String extension) throws IOException {
+        if (extension == null || !extension.matches("[a-z0-9]{1,5}")) {
+            throw new IllegalArgumentException("Invalid blob extension: " + extension);
+        }
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest sha256 = sha256();
+            long size;
+            try (DigestInputStream in = new DigestInputStream(content, sha256);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                size = in.transferTo(out);
+            }
+
+            String key = HexFormat.of().formatHex(sha256.digest()) + "." + extension;
+            Path target = shardPath(key);
+            if (Files.exists(target)) {
+                // Kept until the upload is recorded, in case the collector is removing the existing copy
+                return new FileUpload(new StoredBlob(key, size, true), tmp);
+            }
+            Files.createDirectories(target.getParent());
+            // Same content under the same name, so losing a race with a concurrent identical upload is harmless.
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new FileUpload(new StoredBlob(key, size, false), null);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    @Override
+    public Path locate(String name) {
+        if (name == null) {
+            return null;
+        }
+        Matcher derived = DERIVED.matcher(name);
+        if (derived.matches()) {
+            return shardPath(derived.group(1)).resolveSibling(name);
+        }
+        if (LEGACY.matcher(name).matches()) {
+            return root.resolve(name);
+        }
+        return null;
+    }
+
+    @Override
+    public Removal beginDelete(String key) throws IOException {
+        if (!KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        Path dir = shardPath(key).getParent();
+        Files.createDirectories(tmpDir);
+        FileRemoval removal = new FileRemoval(dir, Files.createTempDirectory(tmpDir, "delete-"));
+        if (!Files.isDirectory(dir)) {
+            return removal;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, key + "*")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                if (name.equals(key) || name.startsWith(key + ".")) {
+                    Files.move(f, removal.trash().resolve(name), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        } catch (IOException e) {
+            removal.rollback();
+            throw e;
+        }
+        return removal;
+    }
+
+    private Path shardPath(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private final class FileUpload implements Upload {
+
+        private final StoredBlob blob;
+        private final Path copy; // null if the upload itself was moved into place
+
+        FileUpload(StoredBlob blob, Path copy) {
+            this.blob = blob;
+            this.copy = copy;
+        }
+
+        @Override
+        public StoredBlob blob() {
+            return blob;
+        }
+
+        @Override
+        public void commit() throws IOException {
+            Path target = shardPath(blob.key());
+            if (copy != null && !Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(copy, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (copy != null) {
+                Files.deleteIfExists(copy);
+            }
+        }
+    }
+
+    private record FileRemoval(Path dir, Path trash) implements Removal {
+
+        @Override
+        public void commit() throws IOException {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(trash)) {
+                for (Path f : files) {
+                    Files.deleteIfExists(f);
+                }
+            }
+            Files.deleteIfExists(trash);
+        }
+
+        @Override
+        public void rollback() throws IOException {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(trash)) {
+                for (Path f : files) {
+                    try {
+                        Files.createDirectories(dir);
+                        Files.move(f, dir.resolve(f.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        Files.deleteIfExists(f); // stored again meanwhile; same content
+                    }
+                }
+            }
+            Files.deleteIfExists(trash);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.nettenz.ebay.util;
+
+/**
+ * Typed access to environment-variable configuration with code defaults. A JVM system property of the same
+ * name ({@code -DDB_POOL_MAX_SIZE=40}) takes precedence, which lets an embedding process such as the load
+ * test configure the application without a separate environment.
+ */
+public final class Env {
+    private Env() {}
+
+    public static String get(String key, String defaultValue) {
+        String value = raw(key);
+        return (value != null && !value.isBlank()) ? value : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = raw(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Environment variable " + key + " must be an integer: " + value, e);
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = raw(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Environment variable " + key + " must be an integer: " + value, e);
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = raw(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    private static String raw(String key) {
+        String value = System.getProperty(key);
+        return value != null ? value : System.getenv(key);
+    }
+}
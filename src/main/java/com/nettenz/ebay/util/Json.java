@@ -0,0 +1,58 @@
+package com.nettenz.ebay.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Minimal helpers for writing JSON by hand.
+ */
+public final class Json {
+    private Json() {}
+
+    /**
+     * Returns {@code s} as a quoted JSON string literal, or {@code null} for a null string.
+     */
+    public static String quote(String s) {
+        if (s == null) return "null";
+        StringWriter sw = new StringWriter(s.length() + 2);
+        try {
+            writeQuoted(sw, s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter does not throw
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Writes {@code s} as a quoted JSON string literal (or {@code null}) without building an escaped copy:
+     * runs of characters that need no escaping are written straight from the string.
+     */
+    public static void writeQuoted(Writer out, String s) throws IOException {
+        if (s == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int run = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            String escape = switch (ch) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> ch < 0x20 ? String.format("\\u%04x", (int) ch) : null;
+            };
+            if (escape != null) {
+                out.write(s, run, i - run);
+                out.write(escape);
+                run = i + 1;
+            }
+        }
+        out.write(s, run, s.length() - run);
+        out.write('"');
+    }
+}
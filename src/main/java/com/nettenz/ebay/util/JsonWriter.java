@@ -0,0 +1,161 @@
+package com.nettenz.ebay.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Streaming JSON writer: values go straight to the underlying {@link Writer} as they are produced, so a
+ * response never exists as a tree or a string in memory. Only tracks, per nesting level, whether a
+ * separator is due.
+ *
+ * <pre>{@code
+ * json.beginObject().field("id", 42).name("tags").beginArray().value("a").endArray().endObject();
+ * }</pre>
+ *
+ * <p>Decimals are written as plain JSON numbers and timestamps as ISO-8601 instants. Not thread-safe.</p>
+ */
+public final class JsonWriter implements Flushable {
+
+    private static final int MAX_DEPTH = 32;
+
+    private final Writer out;
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        Json.writeQuoted(out, name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separator();
+        Json.writeQuoted(out, value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separator();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(Long value) throws IOException {
+        return value == null ? nullValue() : value(value.longValue());
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separator();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value(BigDecimal value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separator();
+        out.write(value.toPlainString());
+        return this;
+    }
+
+    public JsonWriter value(Timestamp value) throws IOException {
+        return value == null ? nullValue() : value(value.toInstant().toString());
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        separator();
+        out.write("null");
+        return this;
+    }
+
+    public JsonWriter field(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, Long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, BigDecimal value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, Timestamp value) throws IOException {
+        return name(name).value(value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separator();
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH);
+        }
+        hasElements[depth++] = false;
+        out.write(bracket);
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("No open object or array to close");
+        }
+        depth--;
+        out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the comma before a value or name, unless it is the first in its container or follows a name.
+     */
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth - 1]) {
+                out.write(',');
+            }
+            hasElements[depth - 1] = true;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.nettenz.ebay.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent blocking calls (typically DAO lookups for one request) concurrently, each on its own
+ * virtual thread, so the caller waits for the slowest call instead of the sum.
+ *
+ * <pre>{@code
+ * try (TaskScope scope = TaskScope.open()) {
+ *     Supplier<ProductDto> product = scope.fork(() -> productDao.findById(id));
+ *     Supplier<List<BidDto>> bids = scope.fork(() -> bidDao.getBidHistory(id));
+ *     scope.join();
+ *     render(product.get(), bids.get());
+ * }
+ * }</pre>
+ *
+ * <p>Structured like the JDK's (still preview) {@code StructuredTaskScope}: no task outlives the block.
+ * {@link #join} waits for all tasks up to a deadline; the first failure, the deadline or an interrupt cancels
+ * the remaining tasks and is rethrown. Closing the scope cancels anything still running and waits for it
+ * to stop. With {@code DAO_FANOUT=false} tasks run one after the other on the calling thread, as before.</p>
+ *
+ * <p>Virtual threads are cheap, but every forked DAO call borrows its own pooled connection; fork a handful
+ * of calls per request, not one per row.</p>
+ */
+public final class TaskScope implements AutoCloseable {
+
+    private static final boolean ENABLED = Env.getBoolean("DAO_FANOUT", true);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMillis(Env.getLong("DAO_FANOUT_TIMEOUT_MS", 10_000));
+
+    private final Duration timeout;
+    private final ExecutorService executor;
+    private final CompletionService<Object> completions;
+    private final List<Future<Object>> futures = new ArrayList<>();
+
+    private TaskScope(Duration timeout, boolean concurrent) {
+        this.timeout = timeout;
+        this.executor = concurrent
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fanout-", 0).factory())
+                : null;
+        this.completions = concurrent ? new ExecutorCompletionService<>(executor) : null;
+    }
+
+    public static TaskScope open() {
+        return new TaskScope(DEFAULT_TIMEOUT, ENABLED);
+    }
+
+    public static TaskScope open(Duration timeout) {
+        return new TaskScope(timeout, ENABLED);
+    }
+
+    /**
+     * Starts {@code task}. The returned supplier may only be read after {@link #join} has returned.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Supplier<T> fork(Callable<? extends T> task) {
+        if (executor == null) {
+            T value = call(task);
+            return () -> value;
+        }
+        Future<Object> future = completions.submit((Callable<Object>) task);
+        futures.add(future);
+        return () -> {
+            if (!future.isDone()) {
+                throw new IllegalStateException("TaskScope.join() has not completed");
+            }
+            return (T) future.resultNow();
+        };
+    }
+
+    /**
+     * Waits for every forked task.
+     *
+     * @throws RuntimeException the first task failure (rethrown as is if unchecked), or on timeout or interrupt
+     */
+    public void join() {
+        if (executor == null) {
+            return;
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (int remaining = futures.size(); remaining > 0; remaining--) {
+                Future<Object> done = completions.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new RuntimeException("Concurrent calls did not finish within " + timeout.toMillis() + " ms",
+                            new TimeoutException());
+                }
+                done.get(); // already complete; throws if the task failed
+            }
+        } catch (ExecutionException e) {
+            throw unchecked(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for concurrent calls", e);
+        } finally {
+            cancelUnfinished();
+        }
+    }
+
+    /**
+     * Cancels (interrupts) any task still running and waits for all of them to end.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            cancelUnfinished();
+            executor.close();
+        }
+    }
+
+    private void cancelUnfinished() {
+        for (Future<Object> f : futures) {
+            f.cancel(true);
+        }
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw unchecked(e);
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable t) {
+        if (t instanceof RuntimeException re) {
+            return re;
+        }
+        if (t instanceof Error err) {
+            throw err;
+        }
+        return new RuntimeException(t);
+    }
+}
@@ -1,12 +1,13 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
-<%@ page import="com.nettenz.ebay.dao.StatsDao.DashboardStats" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
+<%@ page import="com.nettenz.ebay.stats.DashboardCounters.Snapshot" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>Admin Dashboard</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body>
 <div class="layout-sidebar">
@@ -33,10 +34,12 @@
         </div>
 
         <%
-            DashboardStats stats = (DashboardStats) request.getAttribute("stats");
+            Snapshot stats = (Snapshot) request.getAttribute("stats");
             long userCount = stats != null ? stats.userCount() : 0;
             long productCount = stats != null ? stats.productCount() : 0;
             long bidCount = stats != null ? stats.bidCount() : 0;
+            long bidsLastMinute = stats != null ? stats.bidsLastMinute() : 0;
+            long listingsLastHour = stats != null ? stats.listingsLastHour() : 0;
         %>
 
         <div class="stats-grid">
@@ -52,6 +55,14 @@
                 <div class="stat-label">Total Bids</div>
                 <div class="stat-value"><%= bidCount %></div>
             </div>
+            <div class="stat-card">
+                <div class="stat-label">Bids / Minute</div>
+                <div class="stat-value"><%= bidsLastMinute %></div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-label">New Listings / Hour</div>
+                <div class="stat-value"><%= listingsLastHour %></div>
+            </div>
             <div class="stat-card">
                 <div class="stat-label">Revenue</div>
                 <div class="stat-value">$0</div>
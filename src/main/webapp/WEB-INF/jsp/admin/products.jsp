@@ -1,13 +1,15 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
 <%@ page import="java.util.List" %>
 <%@ page import="com.nettenz.ebay.dao.ProductDao.ProductDto" %>
+<%@ page import="com.nettenz.ebay.image.ImageVariant" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>Manage Products</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body>
 <div class="layout-sidebar">
@@ -48,12 +50,7 @@
                         List<ProductDto> list = (List<ProductDto>) request.getAttribute("products");
                         if (list != null) {
                             for (ProductDto p : list) {
-                                String img = p.imageUrl();
-                                String displayImg = null;
-                                if (img != null && !img.isBlank()) {
-                                    if (img.startsWith("http")) displayImg = img;
-                                    else if (img.startsWith("/images/")) displayImg = request.getContextPath() + img;
-                                }
+                                String displayImg = p.imageSrc(request.getContextPath(), ImageVariant.CARD);
                     %>
                     <tr>
                         <td>
@@ -75,6 +72,22 @@
                 </tbody>
             </table>
         </div>
+
+        <%
+            String nextPageToken = (String) request.getAttribute("nextPageToken");
+            boolean firstPage = request.getParameter("after") == null;
+            String sizeQuery = request.getParameter("size") != null ? "size=" + java.net.URLEncoder.encode(request.getParameter("size"), "UTF-8") : null;
+        %>
+        <% if (nextPageToken != null || !firstPage) { %>
+        <div class="pagination">
+            <% if (!firstPage) { %>
+                <a href="<%=request.getContextPath()%>/admin/products<%= sizeQuery != null ? "?" + sizeQuery : "" %>" class="btn btn-secondary">&larr; Newest</a>
+            <% } %>
+            <% if (nextPageToken != null) { %>
+                <a href="<%=request.getContextPath()%>/admin/products?after=<%= nextPageToken %><%= sizeQuery != null ? "&" + sizeQuery : "" %>" class="btn btn-outline">Next page &rarr;</a>
+            <% } %>
+        </div>
+        <% } %>
     </main>
 </div>
 </body>
@@ -1,13 +1,14 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
 <%@ page import="java.util.List" %>
 <%@ page import="com.nettenz.ebay.dao.AdminDao.UserDto" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>Manage Users</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body>
 <div class="layout-sidebar">
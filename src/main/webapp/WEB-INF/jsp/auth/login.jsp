@@ -1,11 +1,12 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>Login</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body class="centered">
 <div class="card" style="max-width: 380px; width: 90%;">
@@ -1,13 +1,14 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
 <%@ page import="java.util.List" %>
 <%@ page import="com.nettenz.ebay.dao.DepartmentDao.DepartmentRecord" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>List Item</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body class="centered">
 <div class="card" style="max-width: 520px; width: 90%;">
@@ -55,6 +56,17 @@
             <input type="number" id="startingBid" name="startingBid" step="0.01" min="0" required class="form-input" placeholder="0.00">
         </div>
 
+        <div class="form-group">
+            <label class="form-label" for="durationDays">Auction Length</label>
+            <select id="durationDays" name="durationDays" class="form-input">
+                <option value="1">1 day</option>
+                <option value="3">3 days</option>
+                <option value="5">5 days</option>
+                <option value="7" selected>7 days</option>
+                <option value="10">10 days</option>
+            </select>
+        </div>
+
         <div class="form-group">
             <label class="form-label" for="description">Description</label>
             <textarea id="description" name="description" class="form-input" placeholder="Describe your item..."></textarea>
@@ -1,15 +1,17 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
 <%@ page import="java.util.List" %>
 <%@ page import="com.nettenz.ebay.dao.ProductDao.ProductDto" %>
+<%@ page import="com.nettenz.ebay.image.ImageVariant" %>
 <%@ page import="com.nettenz.ebay.dao.BidDao.BidDto" %>
 <%@ page import="java.text.SimpleDateFormat" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title><%= ((ProductDto)request.getAttribute("product")).name() %> - Auction</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
     <style>
         .product-detail {
             display: grid;
@@ -210,8 +212,8 @@
     <a href="<%=request.getContextPath()%>/" class="nav-brand">Auction</a>
     <div class="nav-links">
         <a href="<%=request.getContextPath()%>/products">Products</a>
-        <% if (session.getAttribute("auth.userId") != null) { %>
-            <span class="nav-user"><%= session.getAttribute("auth.username") %></span>
+        <% if (request.getAttribute("auth.userId") != null) { %>
+            <span class="nav-user"><%= request.getAttribute("auth.username") %></span>
             <a href="<%=request.getContextPath()%>/logout">Logout</a>
         <% } else { %>
             <a href="<%=request.getContextPath()%>/login">Login</a>
@@ -224,23 +226,25 @@
     List<BidDto> bidHistory = (List<BidDto>) request.getAttribute("bidHistory");
     SimpleDateFormat sdf = new SimpleDateFormat("MMM d, yyyy 'at' h:mm a");
     
-    Long userId = (Long) session.getAttribute("auth.userId");
+    Long userId = (Long) request.getAttribute("auth.userId");
     boolean isLoggedIn = userId != null;
     boolean isSeller = isLoggedIn && userId.equals(product.sellerId());
+    boolean ended = product.ended();
+    String winnerName = null;
+    if (product.winnerId() != null) {
+        for (BidDto bid : bidHistory) {
+            if (product.winnerId().equals(bid.bidderId())) {
+                winnerName = bid.bidderName();
+                break;
+            }
+        }
+    }
     
-    // Get flash messages
-    String bidError = (String) session.getAttribute("bidError");
-    String bidSuccess = (String) session.getAttribute("bidSuccess");
-    session.removeAttribute("bidError");
-    session.removeAttribute("bidSuccess");
+    // Flash messages, taken by ProductDetailServlet
+    String bidError = (String) request.getAttribute("bidError");
+    String bidSuccess = (String) request.getAttribute("bidSuccess");
     
-    String img = product.imageUrl();
-    String displayImg = null;
-    if (img != null && !img.isBlank()) {
-        if (img.startsWith("http")) displayImg = img;
-        else if (img.startsWith("/images/")) displayImg = request.getContextPath() + img;
-        else displayImg = img;
-    }
+    String displayImg = product.imageSrc(request.getContextPath(), ImageVariant.DETAIL);
 %>
 
 <div class="container">
@@ -271,15 +275,29 @@
             </div>
             
             <div class="bid-section">
-                <div class="bid-label">Current Bid</div>
-                <div class="current-bid">$<%= product.currentPrice() %></div>
+                <div class="bid-label"><%= ended ? "Final Bid" : "Current Bid" %></div>
+                <div class="current-bid" id="current-bid">$<%= product.currentPrice() %></div>
                 <div class="starting-bid">
                     <span>Started at $<%= product.startingBid() %></span>
                     <span class="divider"></span>
-                    <span><%= product.bidCount() %> bid<%= product.bidCount() != 1 ? "s" : "" %></span>
+                    <span id="bid-count"><%= product.bidCount() %> bid<%= product.bidCount() != 1 ? "s" : "" %></span>
+                    <% if (product.endsAt() != null) { %>
+                    <span class="divider"></span>
+                    <span><%= ended ? "Ended" : "Ends" %> <%= sdf.format(product.endsAt()) %></span>
+                    <% } %>
                 </div>
 
-                <% if (!isLoggedIn) { %>
+                <% if (ended) { %>
+                    <div class="alert alert-info mt-2">
+                        <% if (isLoggedIn && userId.equals(product.winnerId())) { %>
+                            You won this auction
+                        <% } else if (winnerName != null) { %>
+                            This auction has ended. Won by <strong><%= winnerName %></strong>
+                        <% } else { %>
+                            This auction has ended
+                        <% } %>
+                    </div>
+                <% } else if (!isLoggedIn) { %>
                     <div class="mt-2">
                         <a href="<%=request.getContextPath()%>/login?returnTo=/products/<%= product.id() %>" class="btn btn-outline btn-block">Login to Place Bid</a>
                     </div>
@@ -288,11 +306,12 @@
                 <% } else { %>
                     <form method="post" action="<%=request.getContextPath()%>/bid" class="bid-input">
                         <input type="hidden" name="productId" value="<%= product.id() %>">
-                        <input type="number" name="amount" step="0.01" min="<%= product.currentPrice().add(new java.math.BigDecimal("0.01")) %>" 
-                               class="form-input" placeholder="Enter bid amount" required>
+                        <input type="number" id="bid-amount" name="amount" step="0.01" min="<%= product.currentPrice().add(new java.math.BigDecimal("0.01")) %>" 
+                               class="form-input" placeholder="Enter your maximum bid" required>
                         <button type="submit" class="btn btn-primary">Place Bid</button>
                     </form>
-                    <div class="bid-hint">Enter more than $<%= product.currentPrice() %></div>
+                    <div class="bid-hint" id="bid-hint">Enter more than $<%= product.currentPrice() %></div>
+                    <div class="bid-hint">We bid for you only as much as needed to keep you in the lead, up to your maximum. Other bidders never see it.</div>
                 <% } %>
             </div>
         </div>
@@ -331,5 +350,24 @@
     <% } %>
 </div>
 
+<% if (isLoggedIn && !ended) { %>
+<script>
+    // Live price updates pushed by the server (Server-Sent Events)
+    (function () {
+        if (!window.EventSource) return;
+        var source = new EventSource('<%=request.getContextPath()%>/products/<%= product.id() %>/events');
+        source.addEventListener('bid', function (e) {
+            var d = JSON.parse(e.data);
+            document.getElementById('current-bid').textContent = '$' + d.currentPrice;
+            document.getElementById('bid-count').textContent = d.bidCount + ' bid' + (d.bidCount !== 1 ? 's' : '');
+            var input = document.getElementById('bid-amount');
+            if (input) input.min = (parseFloat(d.currentPrice) + 0.01).toFixed(2);
+            var hint = document.getElementById('bid-hint');
+            if (hint) hint.textContent = 'Enter more than $' + d.currentPrice;
+        });
+    })();
+</script>
+<% } %>
+
 </body>
 </html>
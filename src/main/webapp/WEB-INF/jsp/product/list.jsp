@@ -1,21 +1,23 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
 <%@ page import="java.util.List" %>
 <%@ page import="com.nettenz.ebay.dao.ProductDao.ProductDto" %>
+<%@ page import="com.nettenz.ebay.image.ImageVariant" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>Products</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body>
 
 <nav class="nav">
     <a href="<%=request.getContextPath()%>/" class="nav-brand">Auction</a>
     <div class="nav-links">
-        <% if (session.getAttribute("auth.userId") != null) { %>
-            <span class="nav-user"><%= session.getAttribute("auth.username") %></span>
+        <% if (request.getAttribute("auth.userId") != null) { %>
+            <span class="nav-user"><%= request.getAttribute("auth.username") %></span>
             <a href="<%=request.getContextPath()%>/logout">Logout</a>
         <% } else { %>
             <a href="<%=request.getContextPath()%>/login">Login</a>
@@ -29,11 +31,16 @@
             <h1>Active Auctions</h1>
             <p>Discover unique items and place your bids</p>
         </div>
-        <% if (session.getAttribute("auth.userId") != null) { %>
+        <% if (request.getAttribute("auth.userId") != null) { %>
             <a href="<%=request.getContextPath()%>/products/new" class="btn btn-primary">+ List Item</a>
         <% } %>
     </div>
 
+    <form action="<%=request.getContextPath()%>/search" method="get" class="search-bar">
+        <input type="search" name="q" class="form-input" placeholder="Search auctions">
+        <button type="submit" class="btn btn-primary">Search</button>
+    </form>
+
     <div class="grid grid-auto">
         <%
             List<ProductDto> products = (List<ProductDto>) request.getAttribute("products");
@@ -49,21 +56,9 @@
                 for (ProductDto p : products) {
         %>
             <a href="<%=request.getContextPath()%>/products/<%= p.id() %>" class="product-card" style="text-decoration: none; color: inherit;">
-                <% 
-                   String img = p.imageUrl();
-                   String displayImg = null;
-                   if (img != null && !img.isBlank()) {
-                       if (img.startsWith("http")) {
-                           displayImg = img;
-                       } else if (img.startsWith("/images/")) {
-                           displayImg = request.getContextPath() + img;
-                       } else {
-                           displayImg = img;
-                       }
-                   }
-                %>
+                <% String displayImg = p.imageSrc(request.getContextPath(), ImageVariant.CARD); %>
                 <% if (displayImg != null) { %>
-                    <img src="<%= displayImg %>" alt="<%= p.name() %>" class="product-img">
+                    <img src="<%= displayImg %>" alt="<%= p.name() %>" class="product-img" loading="lazy" decoding="async">
                 <% } else { %>
                     <div class="product-placeholder">📦</div>
                 <% } %>
@@ -80,6 +75,22 @@
             }
         %>
     </div>
+
+    <%
+        String nextPageToken = (String) request.getAttribute("nextPageToken");
+        boolean firstPage = request.getParameter("after") == null;
+        String sizeQuery = request.getParameter("size") != null ? "size=" + java.net.URLEncoder.encode(request.getParameter("size"), "UTF-8") : null;
+    %>
+    <% if (nextPageToken != null || !firstPage) { %>
+    <div class="pagination">
+        <% if (!firstPage) { %>
+            <a href="<%=request.getContextPath()%>/products<%= sizeQuery != null ? "?" + sizeQuery : "" %>" class="btn btn-secondary">&larr; Newest</a>
+        <% } %>
+        <% if (nextPageToken != null) { %>
+            <a href="<%=request.getContextPath()%>/products?after=<%= nextPageToken %><%= sizeQuery != null ? "&" + sizeQuery : "" %>" class="btn btn-outline">Next page &rarr;</a>
+        <% } %>
+    </div>
+    <% } %>
 </div>
 
 </body>
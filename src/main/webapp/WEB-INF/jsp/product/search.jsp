@@ -0,0 +1,141 @@
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
+<%@ page import="java.util.List" %>
+<%@ page import="java.net.URLEncoder" %>
+<%@ page import="com.nettenz.ebay.dao.ProductDao.ProductDto" %>
+<%@ page import="com.nettenz.ebay.image.ImageVariant" %>
+<%@ page import="com.nettenz.ebay.servlet.search.SearchServlet.DepartmentFacet" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
+<%!
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+%>
+<%
+    String query = (String) request.getAttribute("query");
+    Long departmentId = (Long) request.getAttribute("departmentId");
+    List<ProductDto> products = (List<ProductDto>) request.getAttribute("products");
+    List<DepartmentFacet> facets = (List<DepartmentFacet>) request.getAttribute("facets");
+    int totalMatches = (Integer) request.getAttribute("totalMatches");
+    double tookMillis = (Double) request.getAttribute("tookMillis");
+    boolean indexReady = (Boolean) request.getAttribute("indexReady");
+    String searchBase = request.getContextPath() + "/search?q=" + URLEncoder.encode(query, "UTF-8");
+%>
+<!doctype html>
+<html>
+<head>
+    <meta charset="utf-8"/>
+    <meta name="viewport" content="width=device-width, initial-scale=1"/>
+    <title><%= query.isBlank() ? "Search" : escape(query) + " - Search" %></title>
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
+</head>
+<body>
+
+<nav class="nav">
+    <a href="<%=request.getContextPath()%>/" class="nav-brand">Auction</a>
+    <div class="nav-links">
+        <% if (request.getAttribute("auth.userId") != null) { %>
+            <span class="nav-user"><%= request.getAttribute("auth.username") %></span>
+            <a href="<%=request.getContextPath()%>/logout">Logout</a>
+        <% } else { %>
+            <a href="<%=request.getContextPath()%>/login">Login</a>
+        <% } %>
+    </div>
+</nav>
+
+<div class="container-wide">
+    <div class="page-header">
+        <div class="page-header-text">
+            <h1>Search</h1>
+            <% if (!query.isBlank()) { %>
+                <p><%= totalMatches %> result<%= totalMatches != 1 ? "s" : "" %> for &ldquo;<%= escape(query) %>&rdquo;
+                   <span class="text-muted text-sm">(<%= String.format("%.2f", tookMillis) %> ms)</span></p>
+            <% } %>
+        </div>
+        <a href="<%=request.getContextPath()%>/products" class="btn btn-secondary">All auctions</a>
+    </div>
+
+    <form action="<%=request.getContextPath()%>/search" method="get" class="search-bar">
+        <input type="search" name="q" value="<%= escape(query) %>" class="form-input" placeholder="Search auctions"
+               list="search-suggestions" autocomplete="off" autofocus>
+        <datalist id="search-suggestions"></datalist>
+        <% if (departmentId != null) { %>
+            <input type="hidden" name="dept" value="<%= departmentId %>">
+        <% } %>
+        <button type="submit" class="btn btn-primary">Search</button>
+    </form>
+
+    <% if (!indexReady) { %>
+        <div class="alert alert-info">The search index is still loading; some listings may be missing.</div>
+    <% } %>
+
+    <div class="search-layout">
+        <% if (!facets.isEmpty()) { %>
+        <aside class="facets">
+            <div class="facets-title">Departments</div>
+            <a href="<%= searchBase %>" class="facet-link<%= departmentId == null ? " active" : "" %>">All departments</a>
+            <% for (DepartmentFacet f : facets) { %>
+                <a href="<%= searchBase %>&dept=<%= f.id() %>" class="facet-link<%= f.id() == (departmentId != null ? departmentId : -1) ? " active" : "" %>">
+                    <%= escape(f.name()) %> <span class="facet-count"><%= f.count() %></span>
+                </a>
+            <% } %>
+        </aside>
+        <% } %>
+
+        <div class="grid grid-auto">
+            <% if (products.isEmpty()) { %>
+                <div class="empty-state" style="grid-column: 1/-1;">
+                    <div class="empty-state-icon">🔍</div>
+                    <h3><%= query.isBlank() ? "Search the catalogue" : "No matching items" %></h3>
+                    <p><%= query.isBlank() ? "Type a few words from an item's name or description." : "Try fewer or different words." %></p>
+                </div>
+            <% } else {
+                   for (ProductDto p : products) {
+                       String displayImg = p.imageSrc(request.getContextPath(), ImageVariant.CARD);
+            %>
+                <a href="<%=request.getContextPath()%>/products/<%= p.id() %>" class="product-card" style="text-decoration: none; color: inherit;">
+                    <% if (displayImg != null) { %>
+                        <img src="<%= displayImg %>" alt="<%= escape(p.name()) %>" class="product-img" loading="lazy" decoding="async">
+                    <% } else { %>
+                        <div class="product-placeholder">📦</div>
+                    <% } %>
+                    <div class="product-body">
+                        <div class="product-title"><%= escape(p.name()) %></div>
+                        <div class="product-desc"><%= escape(p.description()) %></div>
+                        <div class="product-price">$<%= p.currentPrice() %></div>
+                        <div class="product-meta"><%= p.bidCount() %> bid<%= p.bidCount() != 1 ? "s" : "" %> · <%= escape(p.sellerName()) %></div>
+                    </div>
+                </a>
+            <%     }
+               } %>
+        </div>
+    </div>
+</div>
+
+<script>
+    (function () {
+        var input = document.querySelector('.search-bar input[name=q]');
+        var list = document.getElementById('search-suggestions');
+        var timer;
+        input.addEventListener('input', function () {
+            clearTimeout(timer);
+            timer = setTimeout(function () {
+                if (input.value.trim().length < 2) { list.innerHTML = ''; return; }
+                fetch('<%=request.getContextPath()%>/search/suggest?q=' + encodeURIComponent(input.value))
+                    .then(function (r) { return r.json(); })
+                    .then(function (items) {
+                        list.innerHTML = '';
+                        items.forEach(function (item) {
+                            var option = document.createElement('option');
+                            option.value = item.name;
+                            list.appendChild(option);
+                        });
+                    })
+                    .catch(function () {});
+            }, 120);
+        });
+    })();
+</script>
+
+</body>
+</html>
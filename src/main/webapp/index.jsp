@@ -1,11 +1,12 @@
-<%@ page contentType="text/html;charset=UTF-8" %>
+<%@ page contentType="text/html;charset=UTF-8" session="false" %>
+<%@ page import="com.nettenz.ebay.assets.AssetManifest" %>
 <!doctype html>
 <html>
 <head>
     <meta charset="utf-8"/>
     <meta name="viewport" content="width=device-width, initial-scale=1"/>
     <title>Auction</title>
-    <link rel="stylesheet" href="<%=request.getContextPath()%>/css/style.css">
+    <link rel="stylesheet" href="<%= AssetManifest.url(request, "css/style.css") %>">
 </head>
 <body class="centered">
 <div class="card" style="max-width: 420px; width: 90%;">
@@ -15,9 +16,9 @@
     </div>
 
     <%
-        String username = (String) session.getAttribute("auth.username");
-        String role = (String) session.getAttribute("auth.role");
-        Long userId = (Long) session.getAttribute("auth.userId");
+        String username = (String) request.getAttribute("auth.username");
+        String role = (String) request.getAttribute("auth.role");
+        Long userId = (Long) request.getAttribute("auth.userId");
     %>
 
     <% if (username != null) { %>